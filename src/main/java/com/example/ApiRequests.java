@@ -0,0 +1,132 @@
+package com.example;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed request bodies for the write endpoints. Each {@code from} method applies
+ * the same required/optional rules and defaults the handlers used to apply inline;
+ * a missing required field throws {@link org.json.JSONException}.
+ */
+public final class ApiRequests {
+
+    private ApiRequests() {
+    }
+
+    /** POST /api/proposals/vote */
+    public static final class Vote {
+        public final String proposalId;
+        public final String voteChoice;
+
+        private Vote(String proposalId, String voteChoice) {
+            this.proposalId = proposalId;
+            this.voteChoice = voteChoice;
+        }
+
+        public static Vote from(JSONObject json) {
+            return new Vote(json.getString("proposalId"), json.getString("voteChoice"));
+        }
+    }
+
+    /** POST /api/users/update-status */
+    public static final class SeatStatus {
+        public final String userId;
+        public final String seatStatus;
+
+        private SeatStatus(String userId, String seatStatus) {
+            this.userId = userId;
+            this.seatStatus = seatStatus;
+        }
+
+        public static SeatStatus from(JSONObject json) {
+            return new SeatStatus(json.getString("id"), json.getString("seatStatus"));
+        }
+    }
+
+    /** POST /api/impose-fine; reason is null when the field is absent */
+    public static final class Fine {
+        public final String username;
+        public final int amount;
+        public final String reason;
+
+        private Fine(String username, int amount, String reason) {
+            this.username = username;
+            this.amount = amount;
+            this.reason = reason;
+        }
+
+        public static Fine from(JSONObject json) {
+            String username = json.getString("username").trim();
+            int amount = json.getInt("amount");
+            String reason = json.has("reason") ? json.getString("reason").trim() : null;
+            return new Fine(username, amount, reason);
+        }
+    }
+
+    /** POST /api/proposals */
+    public static final class NewProposal {
+        public final String title;
+        public final String party;
+        public final boolean priority;
+        public final boolean constitutional;
+        public final String voteRequirement;
+        public final String type;
+        public final String associatedProposal;
+
+        private NewProposal(String title, String party, boolean priority, boolean constitutional,
+                            String voteRequirement, String type, String associatedProposal) {
+            this.title = title;
+            this.party = party;
+            this.priority = priority;
+            this.constitutional = constitutional;
+            this.voteRequirement = voteRequirement;
+            this.type = type;
+            this.associatedProposal = associatedProposal;
+        }
+
+        public static NewProposal from(JSONObject json) {
+            return new NewProposal(
+                    json.getString("title"),
+                    json.optString("party", "President").trim(),
+                    json.optBoolean("priority", false),
+                    json.optBoolean("constitutional", false),
+                    json.optString("voteRequirement", "Rel").trim(),
+                    json.optString("type", "normal").trim(),
+                    json.optString("assProposal", "").trim());
+        }
+    }
+
+    /** One entry of POST /api/users/update */
+    public static final class UserUpdate {
+        public final String userId;
+        public final int electoralStrength;
+        public final String partyAffiliation;
+        public final String role;
+
+        private UserUpdate(String userId, int electoralStrength, String partyAffiliation, String role) {
+            this.userId = userId;
+            this.electoralStrength = electoralStrength;
+            this.partyAffiliation = partyAffiliation;
+            this.role = role;
+        }
+
+        public static UserUpdate from(JSONObject json) {
+            return new UserUpdate(
+                    json.getString("id"),
+                    json.optInt("electoralStrength", 1),
+                    json.optString("partyAffiliation", ""),
+                    json.optString("role", "MEMBER"));
+        }
+
+        public static List<UserUpdate> listFrom(JSONArray json) {
+            List<UserUpdate> updates = new ArrayList<>(json.length());
+            for (int i = 0; i < json.length(); i++) {
+                updates.add(from(json.getJSONObject(i)));
+            }
+            return updates;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries WebSocket broadcasts between server nodes.
+ * <p>
+ * A message published on one node is handed to the local delivery callback of
+ * every node, including the publishing one, exactly once. On the other nodes it is
+ * first handed to the remote change callback, so they can bring their caches up to
+ * date before their own clients see the message.
+ */
+public interface BroadcastBus {
+
+    /**
+     * Starts relaying; {@code localDelivery} sends a message to this node's own clients
+     * and {@code remoteChange} sees every message that was published by another node.
+     */
+    void start(Consumer<String> localDelivery, Consumer<String> remoteChange);
+
+    /** Whether messages published here may reach other nodes. */
+    boolean isShared();
+
+    void publish(String message);
+
+    void stop();
+}
@@ -0,0 +1,132 @@
+package com.example;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Collects broadcasts for one tick and publishes them as one frame per topic.
+ * <p>
+ * The first broadcast after a quiet period starts a tick; everything submitted
+ * until it ends goes out together, one frame for each {@link Topic} that had
+ * events, so sessions only receive what they subscribed to. A frame is the event
+ * itself when there is only one, otherwise
+ * {@code {"type":"batch","topic":"...","events":[...]}}. Seat updates for the same
+ * seat, keyed as in {@link OutboundQueue}, replace each other within a tick, moving
+ * to the back so the newest state still follows the events before it.
+ * A tick of 0 ms publishes every broadcast immediately.
+ */
+public class BroadcastScheduler {
+    static final int DEFAULT_TICK_MS = 40;
+
+    private final Consumer<String> publish;
+    private final long tickMs;
+    private final ScheduledExecutorService ticker;
+
+    // Events of the current tick by topic, in publish order; state events keyed by their coalescing key, others by a unique token
+    private final LinkedHashMap<Topic, LinkedHashMap<Object, String>> pending = new LinkedHashMap<>();
+    private boolean tickScheduled = false;
+
+    private final AtomicLong eventsSubmitted = new AtomicLong();
+    private final AtomicLong eventsMerged = new AtomicLong();
+    private final AtomicLong framesPublished = new AtomicLong();
+
+    public BroadcastScheduler(Consumer<String> publish, long tickMs) {
+        this.publish = publish;
+        this.tickMs = tickMs;
+        if (tickMs > 0) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "broadcast-ticker");
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            ticker = null;
+        }
+    }
+
+    /** Queues a broadcast for this tick; a later one with the same coalescing key replaces it. */
+    public void submit(String message) {
+        eventsSubmitted.incrementAndGet();
+        if (ticker == null) {
+            framesPublished.incrementAndGet();
+            publish.accept(message);
+            return;
+        }
+        JSONObject json = OutboundQueue.parse(message);
+        String coalesceKey = OutboundQueue.coalesceKeyOf(json);
+        synchronized (this) {
+            LinkedHashMap<Object, String> events = pending.computeIfAbsent(Topic.of(json), t -> new LinkedHashMap<>());
+            Object key = coalesceKey != null ? coalesceKey : new Object();
+            if (events.remove(key) != null) {
+                eventsMerged.incrementAndGet();
+            }
+            events.put(key, message);
+            if (tickScheduled) {
+                return;
+            }
+            tickScheduled = true;
+        }
+        ticker.schedule(this::flush, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Publishes everything collected so far, one frame per topic. */
+    void flush() {
+        List<Map.Entry<Topic, List<String>>> due = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Topic, LinkedHashMap<Object, String>> topic : pending.entrySet()) {
+                due.add(Map.entry(topic.getKey(), new ArrayList<>(topic.getValue().values())));
+            }
+            pending.clear();
+            tickScheduled = false;
+        }
+        for (Map.Entry<Topic, List<String>> topic : due) {
+            List<String> events = topic.getValue();
+            framesPublished.incrementAndGet();
+            publish.accept(events.size() == 1 ? events.get(0) : batch(topic.getKey(), events));
+        }
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdown();
+        }
+        flush();
+    }
+
+    static String batch(Topic topic, List<String> events) {
+        try {
+            StringWriter buffer = new StringWriter(events.size() * 256);
+            JsonWriter json = new JsonWriter(buffer).beginObject()
+                    .name("type").value("batch")
+                    .name("topic").value(topic.id())
+                    .name("events").beginArray();
+            for (String event : events) {
+                json.rawValue(event);
+            }
+            json.endArray().endObject();
+            return buffer.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+    }
+
+    JSONObject metrics() {
+        JSONObject metrics = new JSONObject();
+        metrics.put("tickMs", tickMs);
+        metrics.put("eventsSubmitted", eventsSubmitted.get());
+        metrics.put("eventsMerged", eventsMerged.get());
+        metrics.put("framesPublished", framesPublished.get());
+        return metrics;
+    }
+}
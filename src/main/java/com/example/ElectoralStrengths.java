@@ -0,0 +1,215 @@
+package com.example;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Party aggregates behind the adjusted electoral strength rules.
+ * <p>
+ * Present members of a party share the strength of its absent members in
+ * proportion to their own strength; NEZ members keep their own strength. Per party
+ * this keeps sumPresent, sumAbsent and the rounded adjusted sum, and globally the
+ * total and present-adjusted denominators. A change to one member only touches
+ * that member's party, so no roster scan is needed to answer a denominator query.
+ */
+public class ElectoralStrengths {
+
+    private static final class Member {
+        final String party;
+        final boolean nez;
+        final int strength;
+        final boolean present;
+
+        Member(Document user) {
+            String partyAff = user.getString("partyAffiliation");
+            this.nez = "NEZ".equalsIgnoreCase(partyAff);
+            this.party = (partyAff != null && !partyAff.trim().isEmpty()) ? partyAff : "Independent";
+            this.strength = safeInt(user.get("electoralStrength"));
+            this.present = user.getBoolean("present", false);
+        }
+    }
+
+    private static final class Party {
+        final Set<ObjectId> members = new LinkedHashSet<>();
+        int sumPresent;
+        int sumAbsent;
+        int adjustedSum;
+    }
+
+    private final Map<ObjectId, Member> members = new HashMap<>();
+    private final Map<String, Party> parties = new HashMap<>();
+    private int totalStrength;
+    private int presentMembers;
+    private int nezPresentSum;
+    private int partyAdjustedSum;
+    private long version;
+
+    public synchronized void rebuild(Collection<Document> users) {
+        members.clear();
+        parties.clear();
+        totalStrength = 0;
+        presentMembers = 0;
+        nezPresentSum = 0;
+        partyAdjustedSum = 0;
+        for (Document user : users) {
+            add(user.getObjectId("_id"), new Member(user));
+        }
+        version++;
+    }
+
+    // Apply the current state of one user; a no-op when nothing relevant changed
+    public synchronized void update(Document user) {
+        ObjectId id = user.getObjectId("_id");
+        Member next = new Member(user);
+        Member previous = members.get(id);
+        if (previous != null && previous.nez == next.nez && previous.party.equals(next.party)
+                && previous.strength == next.strength && previous.present == next.present) {
+            return;
+        }
+        if (previous != null) {
+            remove(id, previous);
+        }
+        add(id, next);
+        version++;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    // Sum of every member's electoral strength, present or not
+    public synchronized int totalStrength() {
+        return totalStrength;
+    }
+
+    public synchronized int presentMembers() {
+        return presentMembers;
+    }
+
+    // Sum of adjusted strengths of present members
+    public synchronized int presentStrength() {
+        return nezPresentSum + partyAdjustedSum;
+    }
+
+    public synchronized int adjustedStrength(ObjectId userId) {
+        Member member = members.get(userId);
+        if (member == null || !member.present) {
+            return 0;
+        }
+        if (member.nez) {
+            return member.strength;
+        }
+        Party party = parties.get(member.party);
+        return adjusted(member.strength, party);
+    }
+
+    /** Adjusted strength of every present member, keyed by hex user id. */
+    public synchronized Map<String, Integer> adjustedMap() {
+        Map<String, Integer> adjustedMap = new HashMap<>();
+        for (Map.Entry<ObjectId, Member> entry : members.entrySet()) {
+            Member member = entry.getValue();
+            if (!member.present) {
+                continue;
+            }
+            if (member.nez) {
+                adjustedMap.put(entry.getKey().toHexString(), member.strength);
+            } else {
+                Party party = parties.get(member.party);
+                if (party.sumPresent != 0) {
+                    adjustedMap.put(entry.getKey().toHexString(), adjusted(member.strength, party));
+                }
+            }
+        }
+        return adjustedMap;
+    }
+
+    private void add(ObjectId id, Member member) {
+        members.put(id, member);
+        totalStrength += member.strength;
+        if (member.present) {
+            presentMembers++;
+        }
+        if (member.nez) {
+            if (member.present) {
+                nezPresentSum += member.strength;
+            }
+            return;
+        }
+        Party party = parties.computeIfAbsent(member.party, p -> new Party());
+        party.members.add(id);
+        if (member.present) {
+            party.sumPresent += member.strength;
+        } else {
+            party.sumAbsent += member.strength;
+        }
+        recomputeParty(party);
+    }
+
+    private void remove(ObjectId id, Member member) {
+        members.remove(id);
+        totalStrength -= member.strength;
+        if (member.present) {
+            presentMembers--;
+        }
+        if (member.nez) {
+            if (member.present) {
+                nezPresentSum -= member.strength;
+            }
+            return;
+        }
+        Party party = parties.get(member.party);
+        party.members.remove(id);
+        if (member.present) {
+            party.sumPresent -= member.strength;
+        } else {
+            party.sumAbsent -= member.strength;
+        }
+        if (party.members.isEmpty()) {
+            partyAdjustedSum -= party.adjustedSum;
+            parties.remove(member.party);
+        } else {
+            recomputeParty(party);
+        }
+    }
+
+    // Rounding is per member, so the party's adjusted sum is recomputed over its present members only
+    private void recomputeParty(Party party) {
+        int adjustedSum = 0;
+        if (party.sumPresent != 0) {
+            for (ObjectId memberId : party.members) {
+                Member m = members.get(memberId);
+                if (m.present) {
+                    adjustedSum += adjusted(m.strength, party);
+                }
+            }
+        }
+        partyAdjustedSum += adjustedSum - party.adjustedSum;
+        party.adjustedSum = adjustedSum;
+    }
+
+    private static int adjusted(int strength, Party party) {
+        if (party == null || party.sumPresent == 0) {
+            return 0;
+        }
+        double adjustedDouble = strength + ((double) strength * party.sumAbsent / party.sumPresent);
+        return (int) Math.round(adjustedDouble);
+    }
+
+    private static int safeInt(Object raw) {
+        if (raw instanceof Number) {
+            return ((Number) raw).intValue();
+        }
+        if (raw != null) {
+            try {
+                return Integer.parseInt(raw.toString());
+            } catch (NumberFormatException ignore) { }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded journal of the broadcast frames this node delivered.
+ * <p>
+ * Every frame is stamped with the next sequence number as a leading
+ * {@code "seq"} field and kept in a ring of the last {@code capacity} frames.
+ * A client that reconnects, or polls, presents the last sequence number it saw
+ * and gets exactly the frames after it, or null when some of them have already
+ * been overwritten and it has to refetch its state instead.
+ * <p>
+ * The ring holds the same encoded {@link OutboundQueue.Message} instances that
+ * were sent, so a replay costs no encoding and the frame bytes stay in the direct
+ * buffers outside the heap. Sequence numbers are per process; the epoch tells a
+ * restarted node, or another node, apart from a gap.
+ */
+public class EventJournal {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final OutboundQueue.Message[] ring;
+    // Sequence number of the newest frame; 0 before the first
+    private long sequence = 0;
+
+    public EventJournal(int capacity) {
+        this.ring = new OutboundQueue.Message[Math.max(1, capacity)];
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /** Stamps the frame with the next sequence number, keeps it and returns it encoded. */
+    public synchronized OutboundQueue.Message append(String message) {
+        sequence++;
+        OutboundQueue.Message frame = OutboundQueue.Message.of(stamp(sequence, message));
+        ring[slot(sequence)] = frame;
+        return frame;
+    }
+
+    /**
+     * The frames after the given sequence number, oldest first, or null if the
+     * journal no longer holds all of them or never issued that number.
+     */
+    public synchronized List<OutboundQueue.Message> since(long since) {
+        if (since > sequence || since < oldest() - 1) {
+            return null;
+        }
+        List<OutboundQueue.Message> frames = new ArrayList<>((int) (sequence - since));
+        for (long next = since + 1; next <= sequence; next++) {
+            frames.add(ring[slot(next)]);
+        }
+        return frames;
+    }
+
+    // Sequence number of the oldest frame still kept
+    private long oldest() {
+        return Math.max(1, sequence - ring.length + 1);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % ring.length);
+    }
+
+    // Broadcasts are JSON objects, so the stamp goes in as their first field
+    static String stamp(long seq, String message) {
+        String body = message.substring(1).trim();
+        return "{\"seq\":" + seq + (body.equals("}") ? "" : ",") + body;
+    }
+
+    synchronized JSONObject metrics() {
+        JSONObject metrics = new JSONObject();
+        metrics.put("epoch", epoch);
+        metrics.put("sequence", sequence);
+        metrics.put("oldest", oldest());
+        metrics.put("capacity", ring.length);
+        return metrics;
+    }
+}
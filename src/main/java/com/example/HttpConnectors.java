@@ -0,0 +1,120 @@
+package com.example;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the server's connectors from the environment.
+ * <p>
+ * The plain connector always speaks HTTP/1.1; with HTTP2=h2c it also accepts
+ * cleartext HTTP/2 (prior knowledge or Upgrade), for use behind a proxy that
+ * terminates TLS. When TLS_KEYSTORE_PATH is set, a TLS connector is added that
+ * negotiates h2 or http/1.1 through ALPN. Browsers only use HTTP/2 over TLS, and
+ * then multiplex all of the page's startup fetches over a single connection.
+ */
+final class HttpConnectors {
+    private static final Logger logger = LoggerFactory.getLogger(HttpConnectors.class);
+
+    private HttpConnectors() {
+    }
+
+    static final class Settings {
+        String host = "0.0.0.0";
+        int port = 8080;
+        // -1 lets Jetty size acceptors and selectors from the CPU count
+        int acceptors = -1;
+        int selectors = -1;
+        long idleTimeoutMs = 30000;
+        boolean h2c = false;
+        int tlsPort = 8443;
+        String keystorePath;
+        String keystorePassword;
+
+        static Settings fromEnv() {
+            Settings settings = new Settings();
+            settings.port = Main.parseIntEnv("HTTP_PORT", settings.port);
+            settings.acceptors = Main.parseIntEnv("HTTP_ACCEPTORS", settings.acceptors);
+            settings.selectors = Main.parseIntEnv("HTTP_SELECTORS", settings.selectors);
+            settings.idleTimeoutMs = Main.parseIntEnv("HTTP_IDLE_TIMEOUT_MS", (int) settings.idleTimeoutMs);
+            settings.h2c = "h2c".equalsIgnoreCase(System.getenv("HTTP2"));
+            settings.tlsPort = Main.parseIntEnv("TLS_PORT", settings.tlsPort);
+            settings.keystorePath = System.getenv("TLS_KEYSTORE_PATH");
+            settings.keystorePassword = System.getenv("TLS_KEYSTORE_PASSWORD");
+            return settings;
+        }
+    }
+
+    static List<ServerConnector> create(Server server, Settings settings) {
+        List<ServerConnector> connectors = new ArrayList<>(2);
+        connectors.add(plain(server, settings));
+        if (settings.keystorePath != null && !settings.keystorePath.isEmpty()) {
+            connectors.add(secure(server, settings));
+        }
+        return connectors;
+    }
+
+    static ServerConnector plain(Server server, Settings settings) {
+        HttpConfiguration config = new HttpConfiguration();
+        config.setSendServerVersion(false);
+        HttpConnectionFactory http1 = new HttpConnectionFactory(config);
+        ServerConnector connector = settings.h2c
+                ? new ServerConnector(server, settings.acceptors, settings.selectors, http1, new HTTP2CServerConnectionFactory(config))
+                : new ServerConnector(server, settings.acceptors, settings.selectors, http1);
+        configure(connector, settings.host, settings.port, settings.idleTimeoutMs);
+        logger.info("HTTP connector on port {}: {}.", settings.port, settings.h2c ? "HTTP/1.1 and h2c" : "HTTP/1.1");
+        return connector;
+    }
+
+    static ServerConnector secure(Server server, Settings settings) {
+        HttpConfiguration config = new HttpConfiguration();
+        config.setSendServerVersion(false);
+        config.setSecureScheme("https");
+        config.setSecurePort(settings.tlsPort);
+        config.addCustomizer(new SecureRequestCustomizer());
+
+        if (settings.keystorePassword == null) {
+            // Jetty would otherwise prompt for it on stdin and block startup
+            throw new IllegalStateException("TLS_KEYSTORE_PATH is set but TLS_KEYSTORE_PASSWORD is not.");
+        }
+        SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(settings.keystorePath);
+        sslContextFactory.setKeyStorePassword(settings.keystorePassword);
+        // HTTP/2 forbids a list of weak ciphers; prefer the ones it allows
+        sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+        sslContextFactory.setUseCipherSuitesOrder(true);
+
+        HttpConnectionFactory http1 = new HttpConnectionFactory(config);
+        HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(config);
+        ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory();
+        // Clients without ALPN get HTTP/1.1
+        alpn.setDefaultProtocol(http1.getProtocol());
+        SslConnectionFactory tls = new SslConnectionFactory(sslContextFactory, alpn.getProtocol());
+
+        ConnectionFactory[] factories = {tls, alpn, h2, http1};
+        ServerConnector connector = new ServerConnector(server, settings.acceptors, settings.selectors, factories);
+        configure(connector, settings.host, settings.tlsPort, settings.idleTimeoutMs);
+        logger.info("TLS connector on port {}: h2 and HTTP/1.1 via ALPN.", settings.tlsPort);
+        return connector;
+    }
+
+    private static void configure(ServerConnector connector, String host, int port, long idleTimeoutMs) {
+        connector.setHost(host);
+        connector.setPort(port);
+        connector.setIdleTimeout(idleTimeoutMs);
+    }
+}
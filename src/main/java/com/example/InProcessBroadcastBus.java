@@ -0,0 +1,28 @@
+package com.example;
+
+import java.util.function.Consumer;
+
+/** Single-node bus: published messages go straight to the local clients. */
+public class InProcessBroadcastBus implements BroadcastBus {
+    private volatile Consumer<String> localDelivery = message -> { };
+
+    @Override
+    public void start(Consumer<String> localDelivery, Consumer<String> remoteChange) {
+        this.localDelivery = localDelivery;
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public void publish(String message) {
+        localDelivery.accept(message);
+    }
+
+    @Override
+    public void stop() {
+        localDelivery = message -> { };
+    }
+}
@@ -0,0 +1,130 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declares the indexes every parliament collection needs and creates the missing
+ * ones at startup. Existing indexes are left alone, so this is cheap to run on
+ * every boot. {@link #ensureIndexesInBackground()} builds them on a daemon thread
+ * so a large first build does not hold up startup; MongoDB 4.2+ builds indexes
+ * without blocking reads and writes for the duration of the build.
+ */
+public class IndexManager {
+    private static final Logger logger = LoggerFactory.getLogger(IndexManager.class);
+
+    private final MongoDatabase database;
+    private final List<IndexSpec> specs = new ArrayList<>();
+
+    public IndexManager(MongoDatabase database) {
+        this.database = database;
+
+        // Login, registration and fines look users up by name
+        declare("users", "username_unique", Indexes.ascending("username"), true);
+
+        // Vote upsert in handleSubmitVote and per-proposal tallies
+        declare("votes", "proposal_user_unique", Indexes.ascending("proposalId", "userId"), true);
+        declare("votes", "user_proposal", Indexes.ascending("userId", "proposalId"), false);
+
+        // End-voting filters and the Discord summary
+        declare("proposals", "open_by_category",
+                Indexes.ascending("votingEnded", "isPriority", "isConstitutional", "stupid"), false);
+        declare("proposals", "meeting_ended", Indexes.ascending("meetingNumber", "votingEnded"), false);
+
+        declare("votingLogs", "proposal", Indexes.ascending("proposalId"), false);
+
+        declare("fineReasons", "meeting", Indexes.ascending("meetingNumber"), false);
+
+        declare("systemParameters", "parameter_unique", Indexes.ascending("parameter"), true);
+
+        // Queue view sorts by priority then timestamp within a status
+        declare("parliamentQueue", "status_priority_timestamp",
+                Indexes.ascending("status", "priority", "timestamp"), false);
+        declare("parliamentQueue", "user_type_status", Indexes.ascending("userId", "type", "status"), false);
+
+        // Duplicate-submission check and the president's pending list
+        declare("pendingProposals", "dedup",
+                Indexes.ascending("submittedByUserId", "title", "status", "submissionTimestamp"), false);
+        declare("pendingProposals", "status_submitted", Indexes.ascending("status", "submissionTimestamp"), false);
+
+        // Session scavenging looks for expired sessions
+        declare(MongoSessionDataStore.COLLECTION, "context_expiry", Indexes.ascending("contextPath", "vhost", "expiry"), false);
+
+        // Cross-node broadcasts are only relayed live, so keep an hour for change stream resumes
+        specs.add(new IndexSpec(MongoBroadcastBus.COLLECTION, "created_ttl", Indexes.ascending("createdAt"), false, 3600L));
+    }
+
+    private void declare(String collection, String name, Bson keys, boolean unique) {
+        specs.add(new IndexSpec(collection, name, keys, unique, null));
+    }
+
+    // Create the missing indexes without holding up the caller; queries work meanwhile, only slower
+    public void ensureIndexesInBackground() {
+        Thread builder = new Thread(this::ensureIndexes, "index-bootstrap");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    // Create every declared index that does not exist yet
+    public void ensureIndexes() {
+        long start = System.currentTimeMillis();
+        int created = 0;
+        for (IndexSpec spec : specs) {
+            MongoCollection<Document> collection = database.getCollection(spec.collection);
+            try {
+                Set<String> existing = new HashSet<>();
+                for (Document index : collection.listIndexes()) {
+                    existing.add(index.getString("name"));
+                }
+                if (existing.contains(spec.name)) {
+                    continue;
+                }
+
+                long indexStart = System.currentTimeMillis();
+                IndexOptions options = new IndexOptions()
+                        .name(spec.name)
+                        .unique(spec.unique);
+                if (spec.expireAfterSeconds != null) {
+                    options.expireAfter(spec.expireAfterSeconds, TimeUnit.SECONDS);
+                }
+                collection.createIndex(spec.keys, options);
+                created++;
+                logger.info("Created index '{}' on '{}' in {} ms.", spec.name, spec.collection,
+                        System.currentTimeMillis() - indexStart);
+            } catch (Exception e) {
+                // A unique index can fail on legacy duplicates; the app still works without it
+                logger.error("Failed to create index '{}' on '{}': {}", spec.name, spec.collection, e.getMessage());
+            }
+        }
+        logger.info("Index bootstrap finished: {} of {} declared indexes created in {} ms.",
+                created, specs.size(), System.currentTimeMillis() - start);
+    }
+
+    private static class IndexSpec {
+        final String collection;
+        final String name;
+        final Bson keys;
+        final boolean unique;
+        final Long expireAfterSeconds;
+
+        IndexSpec(String collection, String name, Bson keys, boolean unique, Long expireAfterSeconds) {
+            this.collection = collection;
+            this.name = name;
+            this.keys = keys;
+            this.unique = unique;
+            this.expireAfterSeconds = expireAfterSeconds;
+        }
+    }
+}
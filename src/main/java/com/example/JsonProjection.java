@@ -0,0 +1,183 @@
+package com.example;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Whitelist of document fields that may leave the server, written straight from a
+ * BSON Document to a {@link JsonWriter}. Only declared fields are emitted, so
+ * fields such as password can never leak; _id is always sent as a hex "id".
+ * Like org.json's put, a null value omits the field unless a default is given.
+ */
+public final class JsonProjection {
+
+    /** Writes one field of a document. */
+    public interface FieldWriter {
+        void write(Document doc, JsonWriter out) throws IOException;
+    }
+
+    /** Public view of a user, as served by /api/users and carried by seatUpdate. */
+    public static final JsonProjection USER = new Builder()
+            .string("username")
+            .string("role")
+            .string("partyAffiliation")
+            .bool("present", false)
+            .string("seatStatus", "NEUTRAL")
+            .integer("fines", 0)
+            .integer("electoralStrength", 1)
+            .build();
+
+    /** A single proposal, including any recorded result. */
+    public static final JsonProjection PROPOSAL = new Builder()
+            .string("title")
+            .string("party")
+            .integer("proposalNumber")
+            .bool("isPriority")
+            .bool("isConstitutional")
+            .string("voteRequirement")
+            .bool("stupid")
+            .string("associationType")
+            .string("referencedProposal")
+            .string("proposalVisual")
+            .integer("meetingNumber")
+            .bool("passed")
+            .integer("totalFor")
+            .integer("totalAgainst")
+            .bool("votingEnded")
+            .build();
+
+    /** Proposal list entry; results only once voting has ended. */
+    public static final JsonProjection PROPOSAL_SUMMARY = new Builder()
+            .string("title")
+            .string("party")
+            .integer("proposalNumber")
+            .bool("isPriority")
+            .bool("isConstitutional")
+            .string("voteRequirement")
+            .bool("stupid")
+            .string("associationType")
+            .string("referencedProposal")
+            .string("proposalVisual")
+            .integer("meetingNumber")
+            .bool("votingEnded", false)
+            .custom((doc, out) -> {
+                if (doc.getBoolean("votingEnded", false)) {
+                    out.name("passed").value(doc.getBoolean("passed", false));
+                    out.name("totalFor").value(toInt(doc.get("totalFor"), 0));
+                    out.name("totalAgainst").value(toInt(doc.get("totalAgainst"), 0));
+                }
+            })
+            .build();
+
+    private final List<FieldWriter> fields;
+
+    private JsonProjection(List<FieldWriter> fields) {
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    public void write(Document doc, JsonWriter out) throws IOException {
+        write(doc, out, null);
+    }
+
+    /** Writes the projected object, with {@code extra} appending request-specific fields. */
+    public void write(Document doc, JsonWriter out, FieldWriter extra) throws IOException {
+        out.beginObject();
+        ObjectId id = doc.getObjectId("_id");
+        if (id != null) {
+            out.name("id").value(id.toHexString());
+        }
+        for (FieldWriter field : fields) {
+            field.write(doc, out);
+        }
+        if (extra != null) {
+            extra.write(doc, out);
+        }
+        out.endObject();
+    }
+
+    public String toJson(Document doc) {
+        StringWriter buffer = new StringWriter(256);
+        try {
+            write(doc, new JsonWriter(buffer));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        return buffer.toString();
+    }
+
+    // Same leniency as ParliamentServlet.safeInt: numbers of any width or numeric strings
+    static Integer toInt(Object raw, Integer defaultValue) {
+        if (raw instanceof Number) {
+            return ((Number) raw).intValue();
+        }
+        if (raw != null) {
+            try {
+                return Integer.parseInt(raw.toString());
+            } catch (NumberFormatException ignore) { }
+        }
+        return defaultValue;
+    }
+
+    public static final class Builder {
+        private final List<FieldWriter> fields = new ArrayList<>();
+
+        public Builder string(String name) {
+            return string(name, null);
+        }
+
+        public Builder string(String name, String defaultValue) {
+            fields.add((doc, out) -> {
+                Object raw = doc.get(name);
+                String value = raw != null ? raw.toString() : defaultValue;
+                if (value != null) {
+                    out.name(name).value(value);
+                }
+            });
+            return this;
+        }
+
+        public Builder bool(String name) {
+            return bool(name, null);
+        }
+
+        public Builder bool(String name, Boolean defaultValue) {
+            fields.add((doc, out) -> {
+                Object raw = doc.get(name);
+                Boolean value = raw instanceof Boolean ? (Boolean) raw : defaultValue;
+                if (value != null) {
+                    out.name(name).value(value);
+                }
+            });
+            return this;
+        }
+
+        public Builder integer(String name) {
+            return integer(name, null);
+        }
+
+        public Builder integer(String name, Integer defaultValue) {
+            fields.add((doc, out) -> {
+                Integer value = toInt(doc.get(name), defaultValue);
+                if (value != null) {
+                    out.name(name).value(value);
+                }
+            });
+            return this;
+        }
+
+        public Builder custom(FieldWriter writer) {
+            fields.add(writer);
+            return this;
+        }
+
+        public JsonProjection build() {
+            return new JsonProjection(new ArrayList<>(fields));
+        }
+    }
+}
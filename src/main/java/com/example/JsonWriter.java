@@ -0,0 +1,181 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Minimal streaming JSON writer. Values go straight to the underlying Writer
+ * (usually the servlet response writer) with no intermediate JSON tree.
+ * Commas are inserted automatically; callers only pair begin/end calls.
+ */
+public class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_DEPTH = 32;
+
+    private final Writer out;
+    // Whether the container at each depth already holds a value
+    private final boolean[] hasValue = new boolean[MAX_DEPTH];
+    private int depth = 0;
+    private boolean afterName = false;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /** Writes an already-encoded JSON value as is. */
+    public JsonWriter rawValue(String json) throws IOException {
+        separate();
+        out.write(json);
+        return this;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** {"type":type,key:payload} around an already-encoded payload, for WebSocket events. */
+    public static String event(String type, String key, String payloadJson) {
+        return event(type, key, payloadJson, null);
+    }
+
+    /** Same, stamped with the resource version the change was written at. */
+    public static String event(String type, String key, String payloadJson, String version) {
+        try {
+            StringWriter buffer = new StringWriter(payloadJson.length() + 80);
+            JsonWriter json = new JsonWriter(buffer).beginObject()
+                    .name("type").value(type);
+            if (version != null) {
+                json.name("version").value(version);
+            }
+            json.name(key).rawValue(payloadJson)
+                    .endObject();
+            return buffer.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        out.write(bracket);
+        depth++;
+        hasValue[depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        out.write(bracket);
+        depth--;
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasValue[depth]) {
+                out.write(',');
+            }
+            hasValue[depth] = true;
+        }
+    }
+
+    // Escapes like org.json, including "</" so values are safe inside a <script> block
+    private void writeString(String s) throws IOException {
+        out.write('"');
+        char previous = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '/':
+                    if (previous == '<') {
+                        out.write('\\');
+                    }
+                    out.write(c);
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                case '\b':
+                    out.write("\\b");
+                    break;
+                case '\f':
+                    out.write("\\f");
+                    break;
+                default:
+                    if (c < 0x20 || (c >= 0x80 && c < 0xa0) || (c >= 0x2000 && c < 0x2100)) {
+                        out.write("\\u");
+                        out.write(HEX[(c >> 12) & 0xf]);
+                        out.write(HEX[(c >> 8) & 0xf]);
+                        out.write(HEX[(c >> 4) & 0xf]);
+                        out.write(HEX[c & 0xf]);
+                    } else {
+                        out.write(c);
+                    }
+            }
+            previous = c;
+        }
+        out.write('"');
+    }
+}
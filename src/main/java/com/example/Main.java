@@ -2,8 +2,17 @@ package com.example;
 
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.server.session.AbstractSessionDataStore;
+import org.eclipse.jetty.server.session.DefaultSessionCache;
+import org.eclipse.jetty.server.session.SessionHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +23,7 @@ import java.io.IOException;
 import org.eclipse.jetty.servlets.CrossOriginFilter; // Keep if needed, or remove if only for headers
 import javax.servlet.DispatcherType;
 import java.util.EnumSet;
+import java.util.List;
 
 // Import the CsrfFilter
 import com.example.CsrfFilter;
@@ -66,17 +76,127 @@ public class Main {
         }
     }
 
+    // THREAD_MODE=virtual runs requests and WebSocket callbacks on virtual threads (JDK 21+)
+    private static ThreadPool createThreadPool() {
+        if ("virtual".equalsIgnoreCase(System.getenv("THREAD_MODE"))) {
+            VirtualThreadPool virtualPool = VirtualThreadPool.createIfSupported();
+            if (virtualPool != null) {
+                logger.info("Request executor: virtual threads, one per task (Java {}).", System.getProperty("java.version"));
+                return virtualPool;
+            }
+            logger.warn("THREAD_MODE=virtual needs Java 21+, running on Java {}. Falling back to platform threads.",
+                    System.getProperty("java.version"));
+        }
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName("jetty-qtp");
+        logger.info("Request executor: QueuedThreadPool, platform threads (min={}, max={}).",
+                threadPool.getMinThreads(), threadPool.getMaxThreads());
+        return threadPool;
+    }
+
+    // With SESSION_STORE=mongo, sessions are kept in MongoDB behind a local near-cache
+    private static void configureSessionStore(ServletContextHandler context) {
+        if (!"mongo".equalsIgnoreCase(System.getenv("SESSION_STORE"))) {
+            logger.info("Using in-memory HTTP sessions (single node, lost on restart).");
+            return;
+        }
+        SessionHandler sessionHandler = context.getSessionHandler();
+        DefaultSessionCache cache = new DefaultSessionCache(sessionHandler);
+        cache.setSaveOnCreate(true);
+        cache.setRemoveUnloadableSessions(true);
+        // Idle sessions drop out of the near-cache so another node's changes are picked up
+        int evictSeconds = parseIntEnv("SESSION_CACHE_EVICT_SECONDS", 60);
+        cache.setEvictionPolicy(evictSeconds);
+
+        MongoSessionDataStore store = new MongoSessionDataStore(MongoDBConnection.getDatabase());
+        String policy = applySessionWritePolicy(store, System.getenv("SESSION_WRITE_POLICY"),
+                parseIntEnv("SESSION_SAVE_PERIOD_SECONDS", 60));
+        cache.setSessionDataStore(store);
+        sessionHandler.setSessionCache(cache);
+        logger.info("Using MongoDB session store ({}, near-cache eviction after {} s idle).", policy, evictSeconds);
+    }
+
+    // write-through saves every request; write-on-change saves on attribute changes
+    // and otherwise only refreshes the expiry every savePeriodSec. Returns the policy applied.
+    static String applySessionWritePolicy(AbstractSessionDataStore store, String policy, int savePeriodSec) {
+        if ("write-through".equalsIgnoreCase(policy)) {
+            store.setSavePeriodSec(0);
+            return "write-through";
+        }
+        store.setSavePeriodSec(savePeriodSec);
+        return "write-on-change";
+    }
+
+    /**
+     * On-the-fly gzip for API responses and any asset without a precompressed variant.
+     * Bodies below {@code minGzipSize} bytes are sent as is; compressing them costs more
+     * CPU than the bytes it saves.
+     */
+    static GzipHandler createGzipHandler(int minGzipSize) {
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setMinGzipSize(minGzipSize);
+        gzipHandler.setIncludedMimeTypes("application/json", "application/javascript", "text/javascript",
+                "text/html", "text/css", "text/plain", "image/svg+xml");
+        gzipHandler.setIncludedMethods("GET", "POST", "PUT");
+        return gzipHandler;
+    }
+
+    /**
+     * Static assets come from the webapp directory on the classpath, so the shaded JAR
+     * is self-contained. The build adds .gz (and, where the brotli tool is installed,
+     * .br) variants next to each asset. WEBAPP_DIR serves a directory instead, for
+     * editing assets without a rebuild.
+     */
+    static Resource resolveWebappBase(String webappDir) throws IOException {
+        if (webappDir != null) {
+            return Resource.newResource(webappDir);
+        }
+        Resource embedded = Resource.newClassPathResource("/webapp");
+        if (embedded == null) {
+            throw new IllegalStateException("No webapp directory on the classpath.");
+        }
+        return embedded;
+    }
+
+    /**
+     * Configures DefaultServlet. With {@code cacheInMemory}, assets are held in memory
+     * after the first read; only safe when they cannot change, i.e. embedded ones.
+     */
+    static void configureStaticContent(ServletHolder defaultServlet, boolean precompressed, boolean cacheInMemory) {
+        defaultServlet.setInitParameter("dirAllowed", "false"); // Set dirAllowed to false
+        defaultServlet.setInitParameter("etags", "true");
+        if (precompressed) {
+            // Picked by Accept-Encoding, brotli first; missing or stale variants fall back to the plain file
+            defaultServlet.setInitParameter("precompressed", "br=.br,gzip=.gz");
+        }
+        if (cacheInMemory) {
+            defaultServlet.setInitParameter("maxCacheSize", String.valueOf(32 * 1024 * 1024));
+            defaultServlet.setInitParameter("maxCachedFileSize", String.valueOf(2 * 1024 * 1024));
+            defaultServlet.setInitParameter("maxCachedFiles", "512");
+        }
+    }
+
+    static int parseIntEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} value '{}'. Using {}.", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
     public static void main(String[] args) {
-        // Define server port
-        int port = 8080;
-        Server server = new Server();
+        Server server = new Server(createThreadPool());
 
-        // Create a ServerConnector to listen on all interfaces
-        ServerConnector connector = new ServerConnector(server);
-        connector.setPort(port);
-        // Optionally, set host to "0.0.0.0" to bind to all IPv4 addresses
-        connector.setHost("0.0.0.0");
-        server.addConnector(connector);
+        // HTTP/1.1 on HTTP_PORT (default 8080), optionally h2c, plus h2 over TLS when a keystore is given
+        List<ServerConnector> connectors = HttpConnectors.create(server, HttpConnectors.Settings.fromEnv());
+        for (ServerConnector connector : connectors) {
+            server.addConnector(connector);
+        }
 
         // Create a ServletContextHandler with sessions enabled
         ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
@@ -100,7 +220,30 @@ public class Main {
             logger.warn("SessionHandler or SessionCookieConfig is null, could not configure HttpOnly/Secure flags for session cookies.");
         }
 
-        server.setHandler(context); // Assign the handler to the server
+        configureSessionStore(context);
+
+        // COMPRESSION=off serves everything uncompressed
+        if ("off".equalsIgnoreCase(System.getenv("COMPRESSION"))) {
+            server.setHandler(context); // Assign the handler to the server
+            logger.info("Response compression disabled.");
+        } else {
+            GzipHandler gzipHandler = createGzipHandler(parseIntEnv("GZIP_MIN_SIZE", 1024));
+            gzipHandler.setHandler(context);
+            server.setHandler(gzipHandler);
+            logger.info("Gzip compression enabled for responses of at least {} bytes.", gzipHandler.getMinGzipSize());
+        }
+
+        // Relay WebSocket broadcasts between nodes when running more than one
+        if ("mongo".equalsIgnoreCase(System.getenv("BROADCAST_BUS"))) {
+            // Buffered votes sit in one node's journal, where the other nodes' tallies cannot see them
+            if (Boolean.parseBoolean(System.getenv("VOTE_WRITE_BEHIND"))) {
+                throw new IllegalStateException("BROADCAST_BUS=mongo cannot be combined with VOTE_WRITE_BEHIND=true.");
+            }
+            SeatWebSocket.setBroadcastBus(new MongoBroadcastBus(MongoDBConnection.getDatabase()));
+            logger.info("Using MongoDB change stream broadcast bus.");
+        } else {
+            logger.info("Using in-process broadcast bus (single node).");
+        }
 
         try {
             // Add SeatWebSocketServlet to handle WebSocket connections at /ws/seat/*
@@ -109,26 +252,48 @@ public class Main {
 
             // Add ParliamentServlet to handle HTTP API requests at /api/*
             ServletHolder parliamentServletHolder = new ServletHolder(new ParliamentServlet());
+            // Needed for SERVLET_MODE=async; harmless for synchronous handlers
+            parliamentServletHolder.setAsyncSupported(true);
             context.addServlet(parliamentServletHolder, "/api/*");
 
             // Add default servlet for serving static content (e.g., index.html)
             ServletHolder defaultServlet = new ServletHolder("default",
                     org.eclipse.jetty.servlet.DefaultServlet.class);
-            defaultServlet.setInitParameter("resourceBase", "src/main/resources/webapp");
-            defaultServlet.setInitParameter("dirAllowed", "false"); // Set dirAllowed to false
+            String webappDir = System.getenv("WEBAPP_DIR");
+            if (webappDir != null && webappDir.isEmpty()) {
+                webappDir = null;
+            }
+            boolean embedded = webappDir == null;
+            Resource webappBase = resolveWebappBase(webappDir);
+            context.setBaseResource(webappBase);
+            // PRECOMPRESSED_ASSETS=false ignores the build's .gz/.br variants
+            boolean precompressed = !"false".equalsIgnoreCase(System.getenv("PRECOMPRESSED_ASSETS"));
+            configureStaticContent(defaultServlet, precompressed, embedded);
             context.addServlet(defaultServlet, "/");
+            logger.info("Serving static content from {} (precompressed variants {}, memory cache {}).",
+                    webappBase, precompressed ? "enabled" : "disabled", embedded ? "enabled" : "disabled");
 
             // Add the SecurityHeadersFilter (should be early in the chain)
-            context.addFilter(SecurityHeadersFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST));
+            context.addFilter(SecurityHeadersFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
+
+            // Versioned, immutable asset URLs; only for embedded assets, which cannot change under us
+            if (embedded) {
+                FilterHolder staticAssets = new FilterHolder(new StaticAssetFilter(webappBase));
+                staticAssets.setAsyncSupported(true);
+                context.addFilter(staticAssets, "/*", EnumSet.of(DispatcherType.REQUEST));
+            }
 
             // Add the CsrfFilter for API paths
             // It's generally good to have security filters like CSRF before the main servlet handling logic.
             // Ensure it's mapped correctly to protect your API endpoints.
-            context.addFilter(CsrfFilter.class, "/api/*", EnumSet.of(DispatcherType.REQUEST));
+            context.addFilter(CsrfFilter.class, "/api/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
 
             // Start the Jetty server
             server.start();
-            logger.info("Server started at http://{}:{}/", connector.getHost(), port);
+            for (ServerConnector connector : connectors) {
+                String scheme = connector.getDefaultConnectionFactory() instanceof SslConnectionFactory ? "https" : "http";
+                logger.info("Server started at {}://{}:{}/", scheme, connector.getHost(), connector.getLocalPort());
+            }
             server.join(); // Keep the server running
         } catch (Throwable t) {
             logger.error("Error starting Jetty server: ", t);
@@ -0,0 +1,140 @@
+package com.example;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Multi-node bus on top of a MongoDB change stream (requires a replica set).
+ * <p>
+ * Each node delivers its own messages locally right away and inserts them into the
+ * broadcastBus collection tagged with its origin id. Every node watches the
+ * collection and relays inserts from other origins to its clients, so nothing is
+ * delivered twice or echoed back. Messages from other origins go to the remote change
+ * callback first, so node-local caches are updated before the clients are told.
+ * Old entries expire through a TTL index.
+ */
+public class MongoBroadcastBus implements BroadcastBus {
+    private static final Logger logger = LoggerFactory.getLogger(MongoBroadcastBus.class);
+
+    static final String COLLECTION = "broadcastBus";
+    private static final long RETRY_DELAY_MS = 1000L;
+
+    private final MongoCollection<Document> busCollection;
+    private final String origin = UUID.randomUUID().toString();
+    private volatile Consumer<String> localDelivery = message -> { };
+    private volatile Consumer<String> remoteChange = message -> { };
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread watcher;
+
+    public MongoBroadcastBus(MongoDatabase database) {
+        this.busCollection = database.getCollection(COLLECTION);
+    }
+
+    @Override
+    public synchronized void start(Consumer<String> localDelivery, Consumer<String> remoteChange) {
+        this.localDelivery = localDelivery;
+        this.remoteChange = remoteChange;
+        running = true;
+        watcher = new Thread(this::watch, "broadcast-bus-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("MongoDB broadcast bus started with origin id {}.", origin);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public void publish(String message) {
+        localDelivery.accept(message);
+        try {
+            busCollection.insertOne(new Document("origin", origin)
+                    .append("message", message)
+                    .append("createdAt", new Date()));
+        } catch (Exception e) {
+            // Local clients already have it; other nodes miss this one message
+            logger.error("Failed to publish broadcast to other nodes: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    private void relay(String message) {
+        try {
+            remoteChange.accept(message);
+        } catch (Exception e) {
+            // The clients still get the message; the caches catch up on the next change
+            logger.error("Failed to apply a change from another node: {}", e.getMessage());
+        }
+        localDelivery.accept(message);
+    }
+
+    // Relay inserts from other nodes, resuming after the last seen event on errors
+    private void watch() {
+        BsonDocument resumeToken = null;
+        while (running) {
+            try {
+                ChangeStreamIterable<Document> stream = busCollection.watch(Collections.singletonList(
+                        Aggregates.match(Filters.and(
+                                Filters.eq("operationType", "insert"),
+                                Filters.ne("fullDocument.origin", origin)))));
+                if (resumeToken != null) {
+                    stream = stream.resumeAfter(resumeToken);
+                }
+                cursor = stream.cursor();
+                while (running && cursor.hasNext()) {
+                    ChangeStreamDocument<Document> change = cursor.next();
+                    resumeToken = change.getResumeToken();
+                    Document entry = change.getFullDocument();
+                    if (entry != null) {
+                        relay(entry.getString("message"));
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("Broadcast bus change stream failed, retrying in {} ms: {}", RETRY_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            } finally {
+                MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+                if (current != null) {
+                    current.close();
+                }
+            }
+        }
+        logger.info("MongoDB broadcast bus watcher stopped.");
+    }
+}
@@ -16,6 +16,8 @@ public class MongoDBConnection {
 
     private static MongoClient mongoClient = null;
     private static MongoDatabase database = null;
+    private static com.mongodb.reactivestreams.client.MongoClient reactiveClient = null;
+    private static com.mongodb.reactivestreams.client.MongoDatabase reactiveDatabase = null;
     private static final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     // Initialize the MongoDB connection
@@ -38,6 +40,22 @@ public class MongoDBConnection {
         return database;
     }
 
+    // Reactive-streams handle on the same database, used by the async servlet mode
+    public static synchronized com.mongodb.reactivestreams.client.MongoDatabase getReactiveDatabase() {
+        if (reactiveClient == null) {
+            getDatabase(); // resolves CONNECTION_STRING
+            try {
+                reactiveClient = com.mongodb.reactivestreams.client.MongoClients.create(CONNECTION_STRING);
+                reactiveDatabase = reactiveClient.getDatabase(DATABASE_NAME);
+                logger.info("Connected reactive MongoDB client to database '{}'.", DATABASE_NAME);
+            } catch (Exception e) {
+                logger.error("Failed to create reactive MongoDB client: ", e);
+                throw new RuntimeException("Failed to create reactive MongoDB client.", e);
+            }
+        }
+        return reactiveDatabase;
+    }
+
     // Hash a plain-text password using BCrypt
     public static String hashPassword(String plainPassword) {
         return passwordEncoder.encode(plainPassword);
@@ -58,5 +76,8 @@ public class MongoDBConnection {
             mongoClient.close();
             logger.info("MongoDB connection closed.");
         }
+        if (reactiveClient != null) {
+            reactiveClient.close();
+        }
     }
 }
@@ -0,0 +1,153 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.eclipse.jetty.server.session.AbstractSessionDataStore;
+import org.eclipse.jetty.server.session.SessionData;
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jetty session data store backed by the httpSessions collection, so a login
+ * survives restarts and is visible to every node.
+ * <p>
+ * Jetty's session cache in front of this store is the near-cache. Jetty only calls
+ * {@link #doStore} when the session's attributes changed or when the save period
+ * has elapsed since the last write; a save period of 0 writes on every request.
+ */
+public class MongoSessionDataStore extends AbstractSessionDataStore {
+    private static final Logger logger = LoggerFactory.getLogger(MongoSessionDataStore.class);
+
+    static final String COLLECTION = "httpSessions";
+
+    private final MongoCollection<Document> sessionsCollection;
+
+    public MongoSessionDataStore(MongoDatabase database) {
+        this.sessionsCollection = database.getCollection(COLLECTION);
+    }
+
+    // Sessions are keyed per context and virtual host, like Jetty's own stores
+    private String key(String id) {
+        return _context.getCanonicalContextPath() + "_" + _context.getVhost() + "_" + id;
+    }
+
+    @Override
+    public SessionData doLoad(String id) throws Exception {
+        Document doc = sessionsCollection.find(Filters.eq("_id", key(id))).first();
+        if (doc == null) {
+            return null;
+        }
+        SessionData data = newSessionData(id, doc.getLong("created"), doc.getLong("accessed"),
+                doc.getLong("lastAccessed"), doc.getLong("maxInactiveMs"));
+        data.setCookieSet(doc.getLong("cookieSet"));
+        data.setExpiry(doc.getLong("expiry"));
+        data.setLastNode(doc.getString("lastNode"));
+        data.setLastSaved(doc.getLong("lastSaved"));
+
+        Binary attributes = doc.get("attributes", Binary.class);
+        if (attributes != null) {
+            try (ClassLoadingObjectInputStream in = new ClassLoadingObjectInputStream(new ByteArrayInputStream(attributes.getData()))) {
+                SessionData.deserializeAttributes(data, in);
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public void doStore(String id, SessionData data, long lastSaveTime) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            SessionData.serializeAttributes(data, out);
+        }
+
+        Document doc = new Document("_id", key(id))
+                .append("id", id)
+                .append("contextPath", _context.getCanonicalContextPath())
+                .append("vhost", _context.getVhost())
+                .append("lastNode", data.getLastNode())
+                .append("created", data.getCreated())
+                .append("accessed", data.getAccessed())
+                .append("lastAccessed", data.getLastAccessed())
+                .append("maxInactiveMs", data.getMaxInactiveMs())
+                .append("cookieSet", data.getCookieSet())
+                .append("expiry", data.getExpiry())
+                .append("lastSaved", data.getLastSaved())
+                .append("attributes", new Binary(bytes.toByteArray()));
+        sessionsCollection.replaceOne(Filters.eq("_id", key(id)), doc, new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public Set<String> doGetExpired(Set<String> candidates) {
+        long now = System.currentTimeMillis();
+        Set<String> expired = new HashSet<>();
+
+        // Candidates are sessions this node holds; gone or expired in the store means expired
+        if (!candidates.isEmpty()) {
+            Set<String> keys = new HashSet<>();
+            for (String id : candidates) {
+                keys.add(key(id));
+            }
+            Set<String> stillValid = new HashSet<>();
+            for (Document doc : sessionsCollection.find(Filters.in("_id", keys))
+                    .projection(Projections.include("id", "expiry"))) {
+                long expiry = doc.getLong("expiry");
+                if (expiry <= 0 || expiry > now) {
+                    stillValid.add(doc.getString("id"));
+                }
+            }
+            for (String id : candidates) {
+                if (!stillValid.contains(id)) {
+                    expired.add(id);
+                }
+            }
+        }
+
+        // Sessions abandoned by other nodes, once the grace period has passed
+        long upperBound = now - TimeUnit.SECONDS.toMillis(getGracePeriodSec());
+        for (Document doc : sessionsCollection.find(Filters.and(
+                        Filters.eq("contextPath", _context.getCanonicalContextPath()),
+                        Filters.eq("vhost", _context.getVhost()),
+                        Filters.gt("expiry", 0L),
+                        Filters.lte("expiry", upperBound)))
+                .projection(Projections.include("id"))) {
+            expired.add(doc.getString("id"));
+        }
+        return expired;
+    }
+
+    @Override
+    public boolean exists(String id) throws Exception {
+        Document doc = sessionsCollection.find(Filters.eq("_id", key(id)))
+                .projection(Projections.include("expiry")).first();
+        if (doc == null) {
+            return false;
+        }
+        long expiry = doc.getLong("expiry");
+        return expiry <= 0 || expiry > System.currentTimeMillis();
+    }
+
+    @Override
+    public boolean delete(String id) throws Exception {
+        boolean deleted = sessionsCollection.deleteOne(Filters.eq("_id", key(id))).getDeletedCount() > 0;
+        logger.debug("Deleted session {} from MongoDB: {}", id, deleted);
+        return deleted;
+    }
+
+    @Override
+    public boolean isPassivating() {
+        return true;
+    }
+}
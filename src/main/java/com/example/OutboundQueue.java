@@ -0,0 +1,325 @@
+package com.example;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded outbound frame queue for one WebSocket session.
+ * <p>
+ * At most one frame is in flight per session; the next is written from the
+ * previous frame's write callback, so a slow client never accumulates frames
+ * inside Jetty. Seat frames carry a coalescing key: a newer frame for the same
+ * seat replaces an older one that has not been sent yet, moving to the back so it
+ * still follows the events before it. Every other frame, including the versioned
+ * proposal and queue records, is never dropped. A session whose queue
+ * still overflows, or whose in-flight frame is stuck, is closed with 1013
+ * (try again later); the client reconnects and catches up from the {@link EventJournal}.
+ * A stuck frame is noticed on the next offer or by the periodic {@link #expireStuckSend()}.
+ * <p>
+ * Each broadcast is UTF-8 encoded once into a read-only direct buffer, and every
+ * session's text frame gets its own view of those same bytes. Frames meant for a
+ * single session stay on the heap.
+ */
+public class OutboundQueue {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+
+    static final int DEFAULT_CAPACITY = 64;
+    static final long DEFAULT_SEND_TIMEOUT_MS = 10000;
+
+    // Totals across all sessions of this node
+    private static final AtomicLong framesSent = new AtomicLong();
+    private static final AtomicLong framesCoalesced = new AtomicLong();
+    private static final AtomicLong sessionsEvicted = new AtomicLong();
+    private static final AtomicLong sendFailures = new AtomicLong();
+
+    /** A frame encoded once, shared by every session's queue for broadcasts. */
+    public static final class Message {
+        final String text;
+        // Encoded payload; never sent directly, only through duplicate() views
+        final ByteBuffer payload;
+        // Non-null for state frames that a newer frame with the same key supersedes
+        final String coalesceKey;
+        // Only sessions subscribed to this topic receive the frame
+        final Topic topic;
+
+        Message(String text, String coalesceKey, Topic topic, boolean shared) {
+            this.text = text;
+            this.coalesceKey = coalesceKey;
+            this.topic = topic;
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            if (shared) {
+                // Broadcasts are kept in the journal and written to many sessions: copy them off the heap once
+                ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+                direct.put(utf8).flip();
+                this.payload = direct.asReadOnlyBuffer();
+            } else {
+                this.payload = ByteBuffer.wrap(utf8).asReadOnlyBuffer();
+            }
+        }
+
+        /** A broadcast frame, encoded into a direct buffer that every session shares. */
+        public static Message of(String text) {
+            JSONObject json = parse(text);
+            return new Message(text, coalesceKeyOf(json), Topic.of(json), true);
+        }
+
+        /**
+         * A frame for one session only, such as a resume position or a snapshot. It is
+         * sent once and dropped, so it stays in a heap buffer the GC reclaims cheaply.
+         */
+        public static Message single(String text) {
+            JSONObject json = parse(text);
+            return new Message(text, coalesceKeyOf(json), Topic.of(json), false);
+        }
+    }
+
+    private final Session session;
+    private final RemoteEndpoint remote;
+    private final int capacity;
+    private final long sendTimeoutMs;
+
+    // Pending frames in send order; state frames keyed by their coalescing key, events by a unique token
+    private final LinkedHashMap<Object, Message> pending = new LinkedHashMap<>();
+    // Journal frames a reconnecting session missed; sent before pending and bounded by the journal, not the capacity
+    private final ArrayDeque<Message> replay = new ArrayDeque<>();
+    private boolean inFlight = false;
+    private long inFlightSince;
+    private boolean closed = false;
+    private int maxDepth = 0;
+
+    private final WriteCallback onWritten = new WriteCallback() {
+        @Override
+        public void writeSuccess() {
+            framesSent.incrementAndGet();
+            sendNext();
+        }
+
+        @Override
+        public void writeFailed(Throwable error) {
+            sendFailures.incrementAndGet();
+            logger.debug("WebSocket write failed, closing session: {}", error.getMessage());
+            close(StatusCode.SHUTDOWN, "Write failed");
+        }
+    };
+
+    public OutboundQueue(Session session, int capacity, long sendTimeoutMs) {
+        this.session = session;
+        this.remote = session.getRemote();
+        this.capacity = capacity;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    /** Queues a frame; returns false if the session was closed instead. */
+    public boolean offer(Message message) {
+        Message next;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (sendTimedOut()) {
+                return evict("frame in flight for over " + sendTimeoutMs + " ms");
+            }
+            Object key = message.coalesceKey != null ? message.coalesceKey : new Object();
+            if (pending.remove(key) != null) {
+                framesCoalesced.incrementAndGet();
+            }
+            if (pending.size() >= capacity) {
+                return evict(pending.size() + " frames pending");
+            }
+            pending.put(key, message);
+            maxDepth = Math.max(maxDepth, pending.size());
+            if (inFlight) {
+                return true;
+            }
+            next = takeNext();
+        }
+        send(next);
+        return true;
+    }
+
+    /**
+     * Queues the frames of a resume ahead of everything else, in order. They are
+     * already encoded and held by the journal, so they are neither coalesced nor
+     * counted against the capacity, however many were missed.
+     */
+    public void replay(List<Message> frames) {
+        Message next;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            replay.addAll(frames);
+            maxDepth = Math.max(maxDepth, replay.size() + pending.size());
+            if (inFlight) {
+                return;
+            }
+            next = takeNext();
+        }
+        send(next);
+    }
+
+    /**
+     * Closes the session if its in-flight frame has been stuck for longer than the
+     * send timeout. Run periodically, so an idle topic still frees a dead session.
+     */
+    public synchronized boolean expireStuckSend() {
+        if (closed || !sendTimedOut()) {
+            return false;
+        }
+        evict("frame in flight for over " + sendTimeoutMs + " ms");
+        return true;
+    }
+
+    // Called with the lock held
+    private boolean sendTimedOut() {
+        return inFlight && System.currentTimeMillis() - inFlightSince > sendTimeoutMs;
+    }
+
+    public synchronized int depth() {
+        return replay.size() + pending.size();
+    }
+
+    public synchronized int maxDepth() {
+        return maxDepth;
+    }
+
+    /** Drops pending frames once the session is gone. */
+    public synchronized void discard() {
+        closed = true;
+        replay.clear();
+        pending.clear();
+    }
+
+    private void sendNext() {
+        Message next;
+        synchronized (this) {
+            next = takeNext();
+        }
+        send(next);
+    }
+
+    // Called with the lock held; claims the in-flight slot if there is something to send
+    private Message takeNext() {
+        Iterator<Map.Entry<Object, Message>> first = pending.entrySet().iterator();
+        if (closed || (replay.isEmpty() && !first.hasNext())) {
+            inFlight = false;
+            return null;
+        }
+        Message next = replay.pollFirst();
+        if (next == null) {
+            next = first.next().getValue();
+            first.remove();
+        }
+        inFlight = true;
+        inFlightSince = System.currentTimeMillis();
+        return next;
+    }
+
+    // Outside the lock: the callback may run on this thread and re-enter sendNext
+    private void send(Message next) {
+        if (next != null) {
+            sendFrame(remote, next, onWritten);
+        }
+    }
+
+    static void sendFrame(RemoteEndpoint remote, Message message, WriteCallback callback) {
+        if (remote instanceof WebSocketRemoteEndpoint) {
+            // The generator consumes the view's position, never the shared bytes
+            TextFrame frame = new TextFrame();
+            frame.setPayload(message.payload.duplicate());
+            ((WebSocketRemoteEndpoint) remote).uncheckedSendFrame(frame, callback);
+        } else {
+            remote.sendString(message.text, callback);
+        }
+    }
+
+    // Called with the lock held
+    private boolean evict(String why) {
+        sessionsEvicted.incrementAndGet();
+        logger.warn("Disconnecting slow WebSocket client {}: {}.", session.getRemoteAddress(), why);
+        closed = true;
+        replay.clear();
+        pending.clear();
+        session.close(StatusCode.TRY_AGAIN_LATER, "Client too slow");
+        return false;
+    }
+
+    private void close(int statusCode, String reason) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            replay.clear();
+            pending.clear();
+        }
+        session.close(statusCode, reason);
+    }
+
+    /**
+     * Frames that describe the current state of one entity. Anything that is not
+     * recognised as such is treated as an event and always delivered.
+     */
+    static String coalesceKeyOf(String text) {
+        return coalesceKeyOf(parse(text));
+    }
+
+    static String coalesceKeyOf(JSONObject json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            if (json.has("version")) {
+                // Versioned change records are applied in sequence by the client; dropping one is a gap
+                return null;
+            }
+            String type = json.optString("type");
+            switch (type) {
+                case "seatUpdate":
+                    JSONObject user = json.optJSONObject("user");
+                    return user != null && user.has("id") ? type + ":" + user.getString("id") : null;
+                case "seatStatusChange":
+                    return json.has("userId") ? type + ":" + json.getString("userId") : null;
+                default:
+                    return null;
+            }
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    // The frame as JSON, or null for anything else
+    static JSONObject parse(String text) {
+        try {
+            return new JSONObject(text);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    static JSONObject metrics() {
+        JSONObject metrics = new JSONObject();
+        metrics.put("framesSent", framesSent.get());
+        metrics.put("framesCoalesced", framesCoalesced.get());
+        metrics.put("sessionsEvicted", sessionsEvicted.get());
+        metrics.put("sendFailures", sendFailures.get());
+        return metrics;
+    }
+}
@@ -1,16 +1,18 @@
 package com.example;
 
-import java.util.stream.Collectors;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.model.Sorts;
 import org.bson.Document;
-import org.bson.conversions.Bson;
 import org.bson.types.ObjectId; // Import ObjectId
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -18,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.*;
 import java.io.IOException;
@@ -26,6 +29,9 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.*;
 import java.util.UUID; // For CSRF token generation
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.mongodb.client.model.Filters.eq;
 
@@ -42,8 +48,32 @@ public class ParliamentServlet extends HttpServlet {
     private final MongoCollection<Document> pendingProposalsCollection;
     private final MongoCollection<Document> parliamentQueueCollection;
 
+    // In-memory, write-through view of usersCollection
+    private final RosterCache roster;
+    // Break status and meeting number, loaded once and kept write-through
+    private final SystemParameters systemParameters;
+    // Journaled, coalescing front of votesCollection
+    private final VoteWriteBuffer voteBuffer;
+    // Running vote totals for open proposals
+    private final VoteTally voteTally = new VoteTally();
+    // Strengths version the live tallies were last rebased on
+    private long tallyStrengthsVersion = -1;
+
     private String discordWebhookUrl;
 
+    // Bounded, pooled JSON body reads for every POST/PUT handler
+    private final RequestBodyReader bodyReader = new RequestBodyReader();
+
+    // Change counters behind the ETags of the list endpoints
+    private final ResourceVersions versions = new ResourceVersions();
+    // Live speaking queue, served from memory and written through to parliamentQueueCollection
+    private final SpeakingQueue speakingQueue;
+
+    // SERVLET_MODE=async runs vote submission on AsyncContext and the reactive driver
+    private final boolean asyncMode;
+    private com.mongodb.reactivestreams.client.MongoCollection<Document> reactiveProposalsCollection;
+    private com.mongodb.reactivestreams.client.MongoCollection<Document> reactiveVotesCollection;
+
     public ParliamentServlet() {
         MongoDatabase database = MongoDBConnection.getDatabase();
         this.usersCollection = database.getCollection("users");
@@ -55,63 +85,237 @@ public class ParliamentServlet extends HttpServlet {
         this.proposalCountersCollection = database.getCollection("proposalCounters");
         this.pendingProposalsCollection = database.getCollection("pendingProposals");
         this.parliamentQueueCollection = database.getCollection("parliamentQueue");
+        this.speakingQueue = new SpeakingQueue(parliamentQueueCollection, versions, SeatWebSocket::broadcast);
+
+        // Create any missing indexes off the startup path
+        new IndexManager(database).ensureIndexesInBackground();
 
-        // Ensure break status is initialized if missing
-        initializeBreakStatus();
+        this.roster = new RosterCache(usersCollection);
+        // Other nodes re-read the users this node writes
+        roster.onWrite(this::publishRosterChange);
 
-        // Initialize meeting number if missing
-        initializeMeetingNumber();
+        // Initialize break status and meeting number if missing, then cache them
+        this.systemParameters = new SystemParameters(systemParametersCollection);
 
         // Initialize Discord webhook URL
         initializeDiscordWebhookUrl();
 
+        // Replays any journaled votes into MongoDB before the tallies are rebuilt
+        this.voteBuffer = new VoteWriteBuffer(votesCollection);
+
+        this.asyncMode = "async".equalsIgnoreCase(System.getenv("SERVLET_MODE"));
+        if (asyncMode) {
+            com.mongodb.reactivestreams.client.MongoDatabase reactiveDatabase = MongoDBConnection.getReactiveDatabase();
+            this.reactiveProposalsCollection = reactiveDatabase.getCollection("proposals");
+            this.reactiveVotesCollection = reactiveDatabase.getCollection("votes");
+        }
+        logger.info("ParliamentServlet running in {} mode.", asyncMode ? "async" : "sync");
+
+        // Rebuild live tallies so a restart mid-meeting keeps accurate totals
+        reconcileVoteTally();
+
         // pull in every still-open proposal right after we start
+        speakingQueue.load();
         repopulateProposalQueue();
+        // New WebSocket clients start from the in-memory queue
+        SeatWebSocket.setConnectSnapshot(this::queueSnapshotMessage);
+        // Keep this node's caches in step with changes made on the other nodes
+        SeatWebSocket.setRemoteChangeHandler(this::applyRemoteChange);
     }
 
-    private void initializeDiscordWebhookUrl() {
-        discordWebhookUrl = System.getenv("DISCORD_WEBHOOK_URL");
-        if (discordWebhookUrl == null || discordWebhookUrl.isEmpty()) {
-            logger.warn("Discord webhook URL not configured. Messages will not be sent to Discord.");
+    private void publishRosterChange(ObjectId userId) {
+        SeatWebSocket.publishChange(new JSONObject().put("type", "rosterChanged")
+                .put("userId", userId != null ? userId.toHexString() : JSONObject.NULL));
+    }
+
+    private void publishSystemParametersChange() {
+        SeatWebSocket.publishChange(new JSONObject().put("type", "systemParametersChanged"));
+    }
+
+    /**
+     * Applies a message published by another node to this node's caches: internal
+     * roster, system parameter and vote changes, and the client-visible frames
+     * whose effects are cached here as well; either kind may come batched.
+     */
+    private void applyRemoteChange(String message) {
+        JSONObject frame = OutboundQueue.parse(message);
+        if (frame == null) {
+            return;
+        }
+        JSONObject change = frame.optJSONObject("change");
+        if (change != null) {
+            frame = change;
+        }
+        JSONArray events = "batch".equals(frame.optString("type")) ? frame.optJSONArray("events") : null;
+        if (events == null) {
+            events = new JSONArray().put(frame);
+        }
+        boolean queueChanged = false;
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject event = events.optJSONObject(i);
+            if (event != null) {
+                queueChanged |= applyRemoteEvent(event);
+            }
+        }
+        // One reload covers every queue change of the batch
+        if (queueChanged) {
+            speakingQueue.load();
+        }
+    }
+
+    // Returns true when the event changed the speaking queue, which the caller reloads
+    private boolean applyRemoteEvent(JSONObject event) {
+        switch (event.optString("type")) {
+            case "rosterChanged":
+                String userId = event.optString("userId", null);
+                if (userId != null && ObjectId.isValid(userId)) {
+                    roster.refresh(new ObjectId(userId));
+                } else {
+                    roster.reload();
+                }
+                return false;
+            case "systemParametersChanged":
+                systemParameters.refresh();
+                return false;
+            case "votesChanged":
+                String proposalId = event.optString("proposalId");
+                String voterId = event.optString("userId");
+                if (ObjectId.isValid(proposalId) && ObjectId.isValid(voterId)) {
+                    // Only tallies this node already tracks; others load from MongoDB when needed
+                    voteTally.recordVote(new ObjectId(proposalId), new ObjectId(voterId), event.optString("username"),
+                            event.optString("voteChoice"), new Date(event.optLong("timestamp")));
+                }
+                versions.bump(ResourceVersions.Resource.VOTES);
+                return false;
+            case "proposalDelete":
+                if (ObjectId.isValid(event.optString("proposalId"))) {
+                    voteTally.remove(new ObjectId(event.optString("proposalId")));
+                }
+                versions.bump(ResourceVersions.Resource.PROPOSALS);
+                return false;
+            case "proposalsUpdated":
+                JSONArray results = event.optJSONArray("results");
+                for (int i = 0; results != null && i < results.length(); i++) {
+                    JSONObject result = results.optJSONObject(i);
+                    if (result != null && ObjectId.isValid(result.optString("id"))) {
+                        voteTally.remove(new ObjectId(result.optString("id")));
+                    }
+                }
+                versions.bump(ResourceVersions.Resource.PROPOSALS);
+                return false;
+            case "proposalUpdate":
+                versions.bump(ResourceVersions.Resource.PROPOSALS);
+                return false;
+            case "queueDelta":
+            case "queueUpdate":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Load the votes of every open proposal into the live tally with a single query
+    private void reconcileVoteTally() {
+        try {
+            List<ObjectId> openProposalIds = new ArrayList<>();
+            for (Document p : proposalsCollection.find(Filters.eq("votingEnded", false))
+                    .projection(Projections.include("_id"))) {
+                openProposalIds.add(p.getObjectId("_id"));
+            }
+
+            ensureTalliesLoaded(openProposalIds);
+            syncTallyStrengths();
+            logger.info("Reconciled live vote tallies for {} open proposals.", openProposalIds.size());
+        } catch (Exception e) {
+            logger.error("Error reconciling vote tallies; they will be loaded lazily: ", e);
         }
     }
 
-    private void initializeBreakStatus() {
-        Document breakStatus = systemParametersCollection.find(Filters.eq("parameter", "breakStatus")).first();
-        if (breakStatus == null) {
-            systemParametersCollection.insertOne(new Document("parameter", "breakStatus").append("value", false));
+    // Rebase live tallies on the current adjusted strengths if presence, party or strength changed
+    private void syncTallyStrengths() {
+        ElectoralStrengths strengths = roster.strengths();
+        synchronized (voteTally) {
+            long strengthsVersion = strengths.version();
+            if (strengthsVersion != tallyStrengthsVersion) {
+                voteTally.setStrengths(strengths.adjustedMap());
+                tallyStrengthsVersion = strengthsVersion;
+            }
         }
     }
 
-    private void initializeMeetingNumber() {
-        Document meetingDoc = systemParametersCollection.find(Filters.eq("parameter", "meetingNumber")).first();
-        if (meetingDoc == null) {
-            systemParametersCollection.insertOne(new Document("parameter", "meetingNumber").append("value", 1));
+    // Load every untracked proposal's votes into the live tally with a single query
+    private void ensureTalliesLoaded(List<ObjectId> proposalIds) {
+        Map<ObjectId, List<Document>> votesByProposal = new HashMap<>();
+        for (ObjectId id : proposalIds) {
+            if (!voteTally.isTracked(id)) {
+                votesByProposal.put(id, new ArrayList<>());
+            }
+        }
+        if (votesByProposal.isEmpty()) {
+            return;
+        }
+        // Buffered votes are newer than anything stored; taken first so a flush in between loses none
+        List<Document> buffered = voteBuffer.pendingVotesFor(votesByProposal.keySet());
+        for (Document vote : votesCollection.find(Filters.in("proposalId", votesByProposal.keySet()))) {
+            votesByProposal.get(vote.getObjectId("proposalId")).add(vote);
+        }
+        for (Document vote : buffered) {
+            votesByProposal.get(vote.getObjectId("proposalId")).add(vote);
+        }
+        for (Map.Entry<ObjectId, List<Document>> entry : votesByProposal.entrySet()) {
+            voteTally.loadIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Makes sure the live tally for a proposal reflects the votes collection.
+     * Returns false for a proposal whose voting has ended; its tally stays closed.
+     */
+    private boolean ensureTallyLoaded(ObjectId proposalId) {
+        if (!voteTally.isTracked(proposalId)) {
+            Document proposal = proposalsCollection.find(eq("_id", proposalId))
+                    .projection(new Document("votingEnded", 1)).first();
+            if (proposal == null || proposal.getBoolean("votingEnded", false)) {
+                return false;
+            }
+            List<Document> buffered = voteBuffer.pendingVotesFor(Collections.singleton(proposalId));
+            List<Document> votes = votesCollection.find(Filters.eq("proposalId", proposalId)).into(new ArrayList<>());
+            votes.addAll(buffered);
+            voteTally.loadIfAbsent(proposalId, votes);
+        }
+        return true;
+    }
+
+    private void initializeDiscordWebhookUrl() {
+        discordWebhookUrl = System.getenv("DISCORD_WEBHOOK_URL");
+        if (discordWebhookUrl == null || discordWebhookUrl.isEmpty()) {
+            logger.warn("Discord webhook URL not configured. Messages will not be sent to Discord.");
         }
     }
 
     private void setBreakStatus(boolean status) {
-        systemParametersCollection.updateOne(
-                Filters.eq("parameter", "breakStatus"),
-                new Document("$set", new Document("value", status))
-        );
+        systemParameters.setBreakActive(status);
+        publishSystemParametersChange();
     }
 
     private boolean isBreakActive() {
-        Document breakStatus = systemParametersCollection.find(Filters.eq("parameter", "breakStatus")).first();
-        return breakStatus != null && breakStatus.getBoolean("value", false);
+        return systemParameters.isBreakActive();
     }
 
     private int getCurrentMeetingNumber() {
-        Document meetingDoc = systemParametersCollection.find(Filters.eq("parameter", "meetingNumber")).first();
-        return meetingDoc != null ? meetingDoc.getInteger("value", 1) : 1;
+        return systemParameters.getMeetingNumber();
     }
 
     private void incrementMeetingNumber() {
-        systemParametersCollection.updateOne(
-                Filters.eq("parameter", "meetingNumber"),
-                new Document("$inc", new Document("value", 1))
-        );
+        systemParameters.incrementMeetingNumber();
+        publishSystemParametersChange();
+    }
+
+    @Override
+    public void destroy() {
+        voteBuffer.shutdown();
+        systemParameters.shutdown();
+        super.destroy();
     }
 
     @Override
@@ -158,6 +362,9 @@ public class ParliamentServlet extends HttpServlet {
             case "/end-session":
                 handleEndSession(request, response);
                 break;
+            case "/system/refresh":
+                handleRefreshSystemParameters(request, response);
+                break;
             case "/register":
                 handleRegister(request, response);
                 break;
@@ -236,6 +443,12 @@ public class ParliamentServlet extends HttpServlet {
                 handleGetQueue(request, response);
             } else if (path.equals("/system/break-status")) {
                 handleGetBreakStatus(request, response);
+            } else if (path.equals("/system/quorum")) {
+                handleGetQuorum(request, response);
+            } else if (path.equals("/system/ws-metrics")) {
+                handleGetWebSocketMetrics(request, response);
+            } else if (path.equals("/changes")) {
+                handleGetChanges(request, response);
             } else if (path.equals("/proposals/pending")) {
                 handleGetPendingProposals(request, response);
             } else if (path.equals("/parliament-queue/view")) {
@@ -257,6 +470,76 @@ public class ParliamentServlet extends HttpServlet {
         response.getWriter().write(breakStatus.toString());
     }
 
+    // Live quorum figures, served from the party aggregates without touching MongoDB
+    private void handleGetQuorum(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("username") == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "User not authenticated.");
+            return;
+        }
+        ElectoralStrengths strengths = roster.strengths();
+        JSONObject quorum = new JSONObject();
+        quorum.put("presentMembers", strengths.presentMembers());
+        quorum.put("presentStrength", strengths.presentStrength());
+        quorum.put("totalStrength", strengths.totalStrength());
+        response.setContentType("application/json");
+        response.getWriter().write(quorum.toString());
+    }
+
+    // Outbound WebSocket queue depth, coalesced frames and evicted sessions on this node
+    private void handleGetWebSocketMetrics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null || !"PRESIDENT".equals(session.getAttribute("role"))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Access denied. Only the President can view WebSocket metrics.");
+            logger.warn("Unauthorized attempt to read WebSocket metrics.");
+            return;
+        }
+        response.setContentType("application/json");
+        response.getWriter().write(SeatWebSocket.metrics().toString());
+    }
+
+    // Broadcasts since a sequence number, from the same journal that WebSocket reconnects replay
+    private void handleGetChanges(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("userId") == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "User not authenticated.");
+            return;
+        }
+        long since;
+        try {
+            since = Long.parseLong(request.getParameter("since"));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Parameter 'since' must be a sequence number.");
+            logger.warn("Invalid 'since' for changes: {}", request.getParameter("since"));
+            return;
+        }
+
+        EventJournal journal = SeatWebSocket.journal();
+        String epoch = request.getParameter("epoch");
+        List<OutboundQueue.Message> frames = epoch == null || epoch.equals(journal.epoch()) ? journal.since(since) : null;
+        if (frames == null) {
+            // The client has to refetch its state, then follow the journal from the current sequence
+            response.sendError(HttpServletResponse.SC_GONE, "Changes since " + since + " are no longer available; refetch.");
+            logger.info("Changes since {} (epoch {}) requested beyond the journal.", since, epoch);
+            return;
+        }
+
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "no-store");
+        String role = (String) session.getAttribute("role");
+        JsonWriter json = new JsonWriter(response.getWriter()).beginObject()
+                .name("epoch").value(journal.epoch())
+                .name("seq").value(since + frames.size())
+                .name("events").beginArray();
+        for (OutboundQueue.Message frame : frames) {
+            // Same role gate as WebSocket topics
+            if (frame.topic.allows(role)) {
+                json.rawValue(frame.text);
+            }
+        }
+        json.endArray().endObject().flush();
+    }
+
     // Handle proposal by ID
     private void handleGetProposalById(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
@@ -264,35 +547,9 @@ public class ParliamentServlet extends HttpServlet {
 
             Document proposal = proposalsCollection.find(eq("_id", new ObjectId(proposalId))).first();
             if (proposal != null) {
-                JSONObject proposalJson = new JSONObject();
-                // Convert '_id' to 'id'
-                proposalJson.put("id", proposal.getObjectId("_id").toHexString());
-                // Client-side code is responsible for HTML escaping this value if rendered in HTML to prevent XSS.
-                proposalJson.put("title", proposal.getString("title"));
-                // Client-side code is responsible for HTML escaping this value if rendered in HTML to prevent XSS.
-                proposalJson.put("party", proposal.getString("party"));
-                // Add other fields from 'proposal' document as needed, ensuring to respect original structure
-                // For example, if proposal.toJson() included other fields, add them explicitly too.
-                // This example assumes only id, title, and party were directly relevant for this specific transformation.
-                // If other fields from proposal.toJson() are expected by client, they must be added here.
-                // For instance:
-                proposalJson.put("proposalNumber", proposal.getInteger("proposalNumber"));
-                proposalJson.put("isPriority", proposal.getBoolean("isPriority"));
-                proposalJson.put("isConstitutional", proposal.getBoolean("isConstitutional"));
-                proposalJson.put("voteRequirement", proposal.getString("voteRequirement"));
-                proposalJson.put("stupid", proposal.getBoolean("stupid"));
-                proposalJson.put("associationType", proposal.getString("associationType"));
-                proposalJson.put("referencedProposal", proposal.getString("referencedProposal"));
-                proposalJson.put("proposalVisual", proposal.getString("proposalVisual"));
-                proposalJson.put("meetingNumber", proposal.getInteger("meetingNumber"));
-                proposalJson.put("passed", proposal.getBoolean("passed"));
-                proposalJson.put("totalFor", proposal.getInteger("totalFor"));
-                proposalJson.put("totalAgainst", proposal.getInteger("totalAgainst"));
-                proposalJson.put("votingEnded", proposal.getBoolean("votingEnded"));
-
-
+                // Client-side code is responsible for HTML escaping these values if rendered in HTML to prevent XSS.
                 response.setContentType("application/json");
-                response.getWriter().write(proposalJson.toString());
+                JsonProjection.PROPOSAL.write(proposal, new JsonWriter(response.getWriter()));
                 logger.info("Fetched proposal with id '{}'.", proposalId);
             } else {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND, "Proposal not found.");
@@ -310,12 +567,10 @@ public class ParliamentServlet extends HttpServlet {
     // Handle user registration
     private void handleRegister(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = request.getReader().readLine()) != null) {
-                sb.append(line);
+            JSONObject registerJson = bodyReader.readObject(request, response, RequestBodyReader.SMALL_LIMIT);
+            if (registerJson == null) {
+                return;
             }
-            JSONObject registerJson = new JSONObject(sb.toString());
             String username = registerJson.getString("username").trim();
             String password = registerJson.getString("password").trim();
             String role = registerJson.optString("role", "MEMBER").trim();
@@ -326,7 +581,7 @@ public class ParliamentServlet extends HttpServlet {
                 return;
             }
 
-            Document existingUser = usersCollection.find(new Document("username", username)).first();
+            Document existingUser = roster.getByUsername(username);
             if (existingUser != null) {
                 response.sendError(HttpServletResponse.SC_CONFLICT, "Username already exists.");
                 logger.warn("Registration attempt with existing username '{}'.", username);
@@ -345,6 +600,8 @@ public class ParliamentServlet extends HttpServlet {
                     .append("electoralStrength", 1);
 
             usersCollection.insertOne(newUser);
+            roster.put(newUser);
+            publishRosterChange(newUser.getObjectId("_id"));
             logger.info("New user '{}' registered successfully with role '{}'.", username, role);
 
             response.setStatus(HttpServletResponse.SC_CREATED);
@@ -384,10 +641,13 @@ public class ParliamentServlet extends HttpServlet {
                 ObjectId proposalId = new ObjectId(proposalIdString);
                 Document query = new Document("_id", proposalId);
                 proposalsCollection.deleteOne(query);
+                voteTally.remove(proposalId);
+                long version = versions.bump(ResourceVersions.Resource.PROPOSALS);
 
                 // Broadcast the deletion event
                 JSONObject deleteMsg = new JSONObject();
                 deleteMsg.put("type", "proposalDelete");
+                deleteMsg.put("version", versions.stamp(version));
                 deleteMsg.put("proposalId", proposalIdString);
                 SeatWebSocket.broadcast(deleteMsg);
                 logger.info("Broadcasted proposalDelete for id '{}'.", proposalIdString);
@@ -435,12 +695,10 @@ public class ParliamentServlet extends HttpServlet {
             ObjectId proposalId = new ObjectId(proposalIdString);
 
             try {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONObject updateData = bodyReader.readObject(request, response, RequestBodyReader.DEFAULT_LIMIT);
+                if (updateData == null) {
+                    return;
                 }
-                JSONObject updateData = new JSONObject(sb.toString());
                 Document setFields = new Document();
 
                 if (updateData.has("title")) {
@@ -492,18 +750,13 @@ public class ParliamentServlet extends HttpServlet {
                 Document query = new Document("_id", proposalId);
                 Document updateDoc = new Document("$set", setFields);
                 proposalsCollection.updateOne(query, updateDoc);
+                long version = versions.bump(ResourceVersions.Resource.PROPOSALS);
 
-                // Fetch the updated proposal to broadcast its latest state
+                // Fetch the updated proposal to broadcast its latest state; without it clients see a gap and refetch
                 Document updatedProposalDoc = proposalsCollection.find(eq("_id", proposalId)).first();
                 if (updatedProposalDoc != null) {
-                    JSONObject updatedProposalJson = new JSONObject(updatedProposalDoc.toJson());
-                    updatedProposalJson.put("id", updatedProposalDoc.getObjectId("_id").toHexString());
-                    updatedProposalJson.remove("_id");
-
-                    JSONObject proposalUpdateMsg = new JSONObject();
-                    proposalUpdateMsg.put("type", "proposalUpdate");
-                    proposalUpdateMsg.put("proposal", updatedProposalJson);
-                    SeatWebSocket.broadcast(proposalUpdateMsg);
+                    SeatWebSocket.broadcast(JsonWriter.event("proposalUpdate", "proposal",
+                            JsonProjection.PROPOSAL_SUMMARY.toJson(updatedProposalDoc), versions.stamp(version)));
                     logger.info("Broadcasted proposalUpdate for id '{}' after president update.", proposalIdString);
                 }
 
@@ -532,12 +785,10 @@ public class ParliamentServlet extends HttpServlet {
     // Handle user login
     private void handleLogin(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = request.getReader().readLine()) != null) {
-                sb.append(line);
+            JSONObject loginJson = bodyReader.readObject(request, response, RequestBodyReader.SMALL_LIMIT);
+            if (loginJson == null) {
+                return;
             }
-            JSONObject loginJson = new JSONObject(sb.toString());
             String username = loginJson.getString("username").trim();
             String password = loginJson.getString("password").trim();
 
@@ -547,8 +798,7 @@ public class ParliamentServlet extends HttpServlet {
                 return;
             }
 
-            Document query = new Document("username", username);
-            Document userDoc = usersCollection.find(query).first();
+            Document userDoc = roster.getByUsername(username);
 
             if (userDoc != null) {
                 String hashedPassword = userDoc.getString("password");
@@ -590,7 +840,7 @@ public class ParliamentServlet extends HttpServlet {
         HttpSession session = request.getSession(false);
         if (session != null && session.getAttribute("username") != null) {
             String username = (String) session.getAttribute("username");
-            Document userDoc = usersCollection.find(eq("username", username)).first();
+            Document userDoc = roster.getByUsername(username);
             if (userDoc != null) {
                 JSONObject userJson = new JSONObject();
                 userJson.put("id", userDoc.getObjectId("_id").toHexString());
@@ -633,7 +883,7 @@ public class ParliamentServlet extends HttpServlet {
             if (session != null) {
                 String username = (String) session.getAttribute("username");
                 if (username != null) {
-                    usersCollection.updateOne(Filters.eq("username", username), Updates.set("present", false));
+                    roster.updateByUsername(username, Updates.set("present", false));
                 }
                 // Remove CSRF token from session
                 session.removeAttribute(CsrfFilter.CSRF_TOKEN_SESSION_ATTR_NAME);
@@ -661,19 +911,14 @@ public class ParliamentServlet extends HttpServlet {
             if (session != null && session.getAttribute("username") != null) {
                 String username = (String) session.getAttribute("username");
 
-                Document query = new Document("username", username);
                 Document update = new Document("$set", new Document("present", true).append("seatStatus", "NEUTRAL"));
-                usersCollection.updateOne(query, update);
-
-                Document userDoc = usersCollection.find(query).first();
-                JSONObject userJson = new JSONObject(userDoc.toJson());
-                userJson.put("id", userDoc.getObjectId("_id").toHexString());
-                userJson.remove("_id");
-
-                JSONObject seatUpdate = new JSONObject();
-                seatUpdate.put("type", "seatUpdate");
-                seatUpdate.put("user", userJson);
-                SeatWebSocket.broadcast(seatUpdate);
+                Document userDoc = roster.updateByUsername(username, update);
+                if (userDoc == null) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND, "User not found.");
+                    logger.warn("User '{}' not found while joining a seat.", username);
+                    return;
+                }
+                SeatWebSocket.broadcast(JsonWriter.event("seatUpdate", "user", JsonProjection.USER.toJson(userDoc)));
 
                 response.setStatus(HttpServletResponse.SC_OK);
                 JSONObject resp = new JSONObject();
@@ -699,14 +944,13 @@ public class ParliamentServlet extends HttpServlet {
                 String requesterUsername = (String) session.getAttribute("username");
                 String requesterRole = (String) session.getAttribute("role");
 
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONObject statusUpdateJson = bodyReader.readObject(request, response, RequestBodyReader.SMALL_LIMIT);
+                if (statusUpdateJson == null) {
+                    return;
                 }
-                JSONObject statusUpdateJson = new JSONObject(sb.toString()); // Renamed for clarity
-                String userIdStr = statusUpdateJson.getString("id");
-                String newStatus = statusUpdateJson.getString("seatStatus");
+                ApiRequests.SeatStatus statusUpdate = ApiRequests.SeatStatus.from(statusUpdateJson);
+                String userIdStr = statusUpdate.userId;
+                String newStatus = statusUpdate.seatStatus;
 
                 // Validate newStatus
                 if (!isValidSeatStatus(newStatus)) {
@@ -724,8 +968,7 @@ public class ParliamentServlet extends HttpServlet {
                     return;
                 }
 
-                Document query = new Document("_id", userObjectId);
-                Document userDoc = usersCollection.find(query).first();
+                Document userDoc = roster.getById(userObjectId);
 
                 if (userDoc != null) {
                     String targetUsername = userDoc.getString("username");
@@ -746,111 +989,48 @@ public class ParliamentServlet extends HttpServlet {
                     }
 
                     Document update = new Document("$set", new Document("seatStatus", newStatus).append("present", true));
-                    usersCollection.updateOne(query, update);
+                    Document updatedUserDoc = roster.updateById(userObjectId, update);
+                    if (updatedUserDoc == null) {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND, "User not found.");
+                        logger.warn("User with ID '{}' disappeared before status update.", userIdStr);
+                        return;
+                    }
 
                     // Handle queue updates for objections
                     if ("OBJECTING".equals(newStatus)) {
                         // Remove any pending speaker requests for this user
-                        parliamentQueueCollection.deleteMany(Filters.and(
-                            Filters.eq("userId", userObjectId),
-                            Filters.eq("type", "SPEAKER_REQUEST"),
-                            Filters.eq("status", "pending")
-                        ));
+                        speakingQueue.deletePending(userObjectId, "SPEAKER_REQUEST");
                         logger.info("Removed pending SPEAKER_REQUEST for user '{}' due to new OBJECTION.", targetUsername);
 
-                        // Upsert an objection item
-                        Bson objectionQuery = Filters.and(
-                            Filters.eq("userId", userObjectId),
-                            Filters.eq("type", "OBJECTION")
-                        );
-                        Document objectionUpdate = new Document("$set", new Document("username", targetUsername) // XSS: Client responsible for escaping
-                                                                    .append("timestamp", new Date())
-                                                                    .append("priority", 1) // Highest priority for objections
-                                                                    .append("status", "pending"))
-                                                    .append("$setOnInsert", new Document("userId", userObjectId).append("type", "OBJECTION"));
-                        UpdateOptions options = new UpdateOptions().upsert(true);
-                        parliamentQueueCollection.updateOne(objectionQuery, objectionUpdate, options);
+                        // Upsert an objection item; highest priority. XSS: Client responsible for escaping the username
+                        speakingQueue.upsertPending(userObjectId, "OBJECTION", targetUsername, 1);
                         logger.info("Upserted OBJECTION for user '{}' into queue.", targetUsername);
-                        broadcastQueueUpdate(); // Ensure queue is updated
                     } else if ("OBJECTING".equals(currentSeatStatus) && !"OBJECTING".equals(newStatus) && "PRESIDENT".equals(requesterRole)) {
                         // President changed status from OBJECTING to something else (e.g., NEUTRAL, SPEAKING)
                         // Note: If changing to SPEAKING because they were selected from queue, handleQueueSetActive will manage it.
                         // This handles direct cancellation by President.
-                        Bson objectionQuery = Filters.and(
-                            Filters.eq("userId", userObjectId),
-                            Filters.eq("type", "OBJECTION"),
-                            Filters.eq("status", "pending") // Only affect pending objections
-                        );
-                        Document objectionUpdate = new Document("$set", new Document("status", "completed")
-                                                                    .append("completedTimestamp", new Date()));
-                        var result = parliamentQueueCollection.updateOne(objectionQuery, objectionUpdate);
-                        if (result.getModifiedCount() > 0) {
+                        // Only affects pending objections
+                        if (speakingQueue.completePending(userObjectId, "OBJECTION") > 0) {
                            logger.info("President '{}' changed status of user '{}' from OBJECTION. Objection queue item marked completed.", requesterUsername, targetUsername);
-                           broadcastQueueUpdate();
                         }
                     }
                     if ("REQUESTING_TO_SPEAK".equals(newStatus)) {
                         // remove any stale requests this user still has
-                        parliamentQueueCollection.deleteMany(Filters.and(
-                                Filters.eq("userId", userObjectId),
-                                Filters.eq("type", "SPEAKER_REQUEST"),
-                                Filters.eq("status", "pending")
-                        ));
-
-                        Document speakReq = new Document("$set",
-                                new Document("username", targetUsername)
-                                        .append("timestamp", new Date())
-                                        .append("priority", 10)          // lower than objection
-                                        .append("status",   "pending"))
-                                .append("$setOnInsert",
-                                        new Document("userId", userObjectId)
-                                                .append("type", "SPEAKER_REQUEST"));
-
-                        parliamentQueueCollection.updateOne(
-                                Filters.and(
-                                        Filters.eq("userId", userObjectId),
-                                        Filters.eq("type",   "SPEAKER_REQUEST")
-                                ),
-                                speakReq,
-                                new UpdateOptions().upsert(true)
-                        );
-                        broadcastQueueUpdate();
+                        speakingQueue.deletePending(userObjectId, "SPEAKER_REQUEST");
+                        speakingQueue.upsertPending(userObjectId, "SPEAKER_REQUEST", targetUsername, 10); // lower than objection
                     } else if ("REQUESTING_TO_SPEAK".equals(currentSeatStatus)
                             && !"REQUESTING_TO_SPEAK".equals(newStatus)) {
-                        parliamentQueueCollection.updateOne(
-                                Filters.and(
-                                        Filters.eq("userId", userObjectId),
-                                        Filters.eq("type",   "SPEAKER_REQUEST"),
-                                        Filters.eq("status", "pending")
-                                ),
-                                new Document("$set", new Document("status", "completed")
-                                        .append("completedTimestamp", new Date()))
-                        );
-                        broadcastQueueUpdate();
+                        speakingQueue.completePending(userObjectId, "SPEAKER_REQUEST");
                     }
 
-
-
-
-                    Document updatedUserDoc = usersCollection.find(query).first();
-                    JSONObject userJsonForResponse = new JSONObject(updatedUserDoc.toJson());
-                    userJsonForResponse.put("id", updatedUserDoc.getObjectId("_id").toHexString());
-                    userJsonForResponse.remove("_id");
-                    userJsonForResponse.remove("password"); // Ensure password is not sent in HTTP response
-
-                    // Prepare user JSON for WebSocket broadcast (can be the same or slightly different if needed)
-                    JSONObject userJsonForBroadcast = new JSONObject(userJsonForResponse.toString()); // Create a copy for broadcast
-
-                    // Broadcast the change via WebSocket
-                    JSONObject seatUpdateMsg = new JSONObject();
-                    seatUpdateMsg.put("type", "seatUpdate");
-                    seatUpdateMsg.put("user", userJsonForBroadcast);
-                    SeatWebSocket.broadcast(seatUpdateMsg);
+                    // Encoded once, for both the broadcast and the response
+                    String userJson = JsonProjection.USER.toJson(updatedUserDoc);
+                    SeatWebSocket.broadcast(JsonWriter.event("seatUpdate", "user", userJson));
                     logger.info("Broadcasted seatUpdate for user '{}' due to status change.", targetUsername);
 
                     response.setStatus(HttpServletResponse.SC_OK);
                     response.setContentType("application/json");
-                    response.getWriter().write(userJsonForResponse.toString()); // Return the updated user document
+                    response.getWriter().write(userJson); // Return the updated user document
                     logger.info("User '{}' updated seat status of '{}' to '{}'. Returned updated user data.", requesterUsername, targetUsername, newStatus);
                 } else {
                     response.sendError(HttpServletResponse.SC_NOT_FOUND, "User not found.");
@@ -882,20 +1062,18 @@ public class ParliamentServlet extends HttpServlet {
         try {
             HttpSession session = request.getSession(false);
             if (session != null && "PRESIDENT".equals(session.getAttribute("role"))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONObject proposalJson = bodyReader.readObject(request, response, RequestBodyReader.DEFAULT_LIMIT);
+                if (proposalJson == null) {
+                    return;
                 }
-                JSONObject proposalJson = new JSONObject(sb.toString());
-                String title = proposalJson.getString("title");
-                String party = proposalJson.optString("party", "President").trim();
-                boolean priority = proposalJson.optBoolean("priority", false);
-                // NEW: Read the constitutional flag and vote requirement
-                boolean constitutional = proposalJson.optBoolean("constitutional", false);
-                String voteRequirement = proposalJson.optString("voteRequirement", "Rel").trim();
-                String type = proposalJson.optString("type", "normal").trim();
-                String associatedProposal = proposalJson.optString("assProposal", "").trim();
+                ApiRequests.NewProposal newProposal = ApiRequests.NewProposal.from(proposalJson);
+                String title = newProposal.title;
+                String party = newProposal.party;
+                boolean priority = newProposal.priority;
+                boolean constitutional = newProposal.constitutional;
+                String voteRequirement = newProposal.voteRequirement;
+                String type = newProposal.type;
+                String associatedProposal = newProposal.associatedProposal;
 
                 int proposalNumber;
                 String proposalVisual;
@@ -938,18 +1116,12 @@ public class ParliamentServlet extends HttpServlet {
                         .append("totalAgainst", 0)
                         .append("votingEnded", false);
                 proposalsCollection.insertOne(proposalDoc);
+                long version = versions.bump(ResourceVersions.Resource.PROPOSALS);
 
                 Document insertedProposal = proposalsCollection.find(Filters.eq("proposalNumber", proposalNumber)).first();
                 if (insertedProposal != null) {
-                    JSONObject insertedProposalJson = new JSONObject(insertedProposal.toJson());
-                    String id = insertedProposal.getObjectId("_id").toHexString();
-                    insertedProposalJson.put("id", id);
-                    insertedProposalJson.remove("_id");
-
-                    JSONObject proposalUpdate = new JSONObject();
-                    proposalUpdate.put("type", "proposalUpdate");
-                    proposalUpdate.put("proposal", insertedProposalJson);
-                    SeatWebSocket.broadcast(proposalUpdate);
+                    SeatWebSocket.broadcast(JsonWriter.event("proposalUpdate", "proposal",
+                            JsonProjection.PROPOSAL_SUMMARY.toJson(insertedProposal), versions.stamp(version)));
 
                     response.setStatus(HttpServletResponse.SC_OK);
                     JSONObject resp = new JSONObject();
@@ -1015,14 +1187,13 @@ public class ParliamentServlet extends HttpServlet {
                 String userId = (String) session.getAttribute("userId");
                 int electoralStrength = (int) session.getAttribute("electoralStrength");
 
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONObject voteJson = bodyReader.readObject(request, response, RequestBodyReader.SMALL_LIMIT);
+                if (voteJson == null) {
+                    return;
                 }
-                JSONObject voteJson = new JSONObject(sb.toString());
-                String proposalIdStr = voteJson.getString("proposalId");
-                String voteChoice = voteJson.getString("voteChoice");
+                ApiRequests.Vote vote = ApiRequests.Vote.from(voteJson);
+                String proposalIdStr = vote.proposalId;
+                String voteChoice = vote.voteChoice;
 
                 if (!Arrays.asList("For", "Against", "Abstain").contains(voteChoice)) {
                     response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid vote choice.");
@@ -1041,17 +1212,6 @@ public class ParliamentServlet extends HttpServlet {
                     return;
                 }
 
-                Document proposal = proposalsCollection.find(eq("_id", proposalObjectId)).first();
-                if (proposal == null || proposal.getBoolean("votingEnded", false)) {
-                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid proposal or voting has ended.");
-                    return;
-                }
-                // If it's stupid => no voting
-                if (proposal.getBoolean("stupid", false)) {
-                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "This proposal is marked as stupid; no voting allowed.");
-                    return;
-                }
-
                 Document voteRecord = new Document("proposalId", proposalObjectId)
                         .append("userId", userObjectIdFromString)
                         .append("username", username)
@@ -1059,18 +1219,21 @@ public class ParliamentServlet extends HttpServlet {
                         .append("electoralStrength", electoralStrength)
                         .append("timestamp", new Date());
 
-                votesCollection.updateOne(
-                        Filters.and(eq("proposalId", proposalObjectId), eq("userId", userObjectIdFromString)),
-                        new Document("$set", voteRecord),
-                        new UpdateOptions().upsert(true)
-                );
+                if (asyncMode) {
+                    submitVoteAsync(request, response, voteRecord);
+                    return;
+                }
 
-                response.setStatus(HttpServletResponse.SC_OK);
-                JSONObject resp = new JSONObject();
-                resp.put("message", "Vote submitted successfully.");
-                response.setContentType("application/json");
-                response.getWriter().write(resp.toString());
-                logger.info("User '{}' voted on proposal '{}': '{}'", username, proposalIdStr, voteChoice);
+                Document proposal = proposalsCollection.find(eq("_id", proposalObjectId)).first();
+                String rejection = voteRejection(proposal);
+                if (rejection != null) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, rejection);
+                    return;
+                }
+
+                voteBuffer.submit(voteRecord);
+                applyVoteToTally(voteRecord);
+                writeVoteAccepted(response, voteRecord);
             } else {
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "User not authenticated.");
                 logger.warn("Unauthenticated attempt to submit a vote.");
@@ -1110,13 +1273,8 @@ public class ParliamentServlet extends HttpServlet {
                     return;
                 }
 
-                Map<String, Integer> adjustedMap = computeAdjustedElectoralStrengths();
-                for (Document proposal : proposals) {
-                    endProposalVoting(proposal, adjustedMap);
-                }
-
-                // Broadcast that proposal states have been updated
-                JSONObject updateMsg = new JSONObject().put("type", "proposalsUpdated");
+                // Broadcast the results so clients update the closed proposals in place
+                JSONObject updateMsg = endProposalsVoting(proposals);
                 SeatWebSocket.broadcast(updateMsg);
                 logger.info("Broadcasted proposalsUpdated after ending normal voting.");
 
@@ -1164,13 +1322,8 @@ public class ParliamentServlet extends HttpServlet {
                     return;
                 }
 
-                Map<String, Integer> adjustedMap = computeAdjustedElectoralStrengths();
-                for (Document proposal : proposals) {
-                    endProposalVoting(proposal, adjustedMap);
-                }
-
-                // Broadcast that proposal states have been updated
-                JSONObject updateMsg = new JSONObject().put("type", "proposalsUpdated");
+                // Broadcast the results so clients update the closed proposals in place
+                JSONObject updateMsg = endProposalsVoting(proposals);
                 SeatWebSocket.broadcast(updateMsg);
                 logger.info("Broadcasted proposalsUpdated after ending priority voting.");
                 repopulateProposalQueue(); // Call to repopulate and broadcast queue
@@ -1210,13 +1363,8 @@ public class ParliamentServlet extends HttpServlet {
                     return;
                 }
 
-                Map<String, Integer> adjustedMap = computeAdjustedElectoralStrengths();
-                for (Document proposal : proposals) {
-                    endProposalVoting(proposal, adjustedMap);
-                }
-
-                // Broadcast that proposal states have been updated
-                JSONObject updateMsg = new JSONObject().put("type", "proposalsUpdated");
+                // Broadcast the results so clients update the closed proposals in place
+                JSONObject updateMsg = endProposalsVoting(proposals);
                 SeatWebSocket.broadcast(updateMsg);
                 logger.info("Broadcasted proposalsUpdated after ending constitutional voting.");
                 repopulateProposalQueue(); // Call to repopulate and broadcast queue
@@ -1236,153 +1384,213 @@ public class ParliamentServlet extends HttpServlet {
         }
     }
 
-    private void endProposalVoting(Document proposal, Map<String, Integer> adjustedMap) {
-        ObjectId proposalId = proposal.getObjectId("_id");
-        List<Document> votes = votesCollection.find(Filters.eq("proposalId", proposalId)).into(new ArrayList<>());
-        int totalFor = 0;
-        int totalAgainst = 0;
-        int supportersCount = 0;
-        JSONArray detailedVotes = new JSONArray();
-
-        for (Document vote : votes) {
-            String voteChoice = vote.getString("voteChoice");
-            String voterId = vote.getObjectId("userId").toHexString();
-            String username = vote.getString("username");
-            int voterAdjustedStrength = adjustedMap.getOrDefault(voterId, 0);
-            Date timestamp = vote.getDate("timestamp");
-            JSONObject detailedVote = new JSONObject();
-            detailedVote.put("userId", voterId);
-            detailedVote.put("username", username);
-            detailedVote.put("voteChoice", voteChoice);
-            detailedVote.put("electoralStrength", voterAdjustedStrength);
-            if (timestamp != null) {
-                detailedVote.put("timestamp", timestamp.toInstant().toString());
-            }
-            detailedVotes.put(detailedVote);
-
-            if ("For".equalsIgnoreCase(voteChoice)) {
-                totalFor += voterAdjustedStrength;
-                supportersCount++;
-            } else if ("Against".equalsIgnoreCase(voteChoice)) {
-                totalAgainst += voterAdjustedStrength;
-            }
+    // Why a vote on this proposal must be refused, or null if it may be cast
+    private String voteRejection(Document proposal) {
+        if (proposal == null || proposal.getBoolean("votingEnded", false)) {
+            return "Invalid proposal or voting has ended.";
         }
-
-        boolean passed = false;
-        String voteRequirement = proposal.getString("voteRequirement");
-        if (voteRequirement == null) {
-            voteRequirement = "Rel";
+        // If it's stupid => no voting
+        if (proposal.getBoolean("stupid", false)) {
+            return "This proposal is marked as stupid; no voting allowed.";
         }
-        if ("Rel".equals(voteRequirement)) {
-            // Rel: More For than Against and at least 2 For votes
-            passed = (supportersCount >= 2 && totalFor > totalAgainst);
-        } else {
-            double ratio = 0.0;
-            boolean useTotal = voteRequirement.endsWith("+");
-            if (voteRequirement.startsWith("2/3")) {
-                ratio = 2.0 / 3.0;
-            } else if (voteRequirement.startsWith("3/5")) {
-                ratio = 3.0 / 5.0;
-            } else if (voteRequirement.startsWith("1/2")) {
-                ratio = 1.0 / 2.0;
-            }
-            double denominator = useTotal ? getTotalElectoralStrength() : getTotalPresentElectoralStrength(adjustedMap);
-            passed = (totalFor > ratio * denominator);
-        }
-
-        proposalsCollection.updateOne(
-                Filters.eq("_id", proposalId),
-                new Document("$set", new Document("passed", passed)
-                        .append("totalFor", totalFor)
-                        .append("totalAgainst", totalAgainst)
-                        .append("votingEnded", true))
-        );
-
-        Document votingLog = new Document("proposalId", proposalId)
-                .append("proposalTitle", proposal.getString("title"))
-                .append("meetingNumber", proposal.getInteger("meetingNumber", 1))
-                .append("votes", detailedVotes.toList())
-                .append("timestamp", new Date());
-        votingLogsCollection.insertOne(votingLog);
-        logger.info("Proposal '{}': For = {}, Against = {}, Passed = {}",
-                proposal.getString("title"), totalFor, totalAgainst, passed);
+        return null;
     }
 
-    private int getTotalElectoralStrength() {
-        List<Document> allUsers = usersCollection.find().into(new ArrayList<>());
-        int sum = 0;
-        for (Document u : allUsers) {
-            sum += safeInt(u,"electoralStrength", 0);
+    private void applyVoteToTally(Document voteRecord) {
+        ObjectId proposalId = voteRecord.getObjectId("proposalId");
+        // A vote that raced the close of voting is stored but no longer counted
+        if (!ensureTallyLoaded(proposalId)
+                || !voteTally.recordVote(proposalId, voteRecord.getObjectId("userId"), voteRecord.getString("username"),
+                        voteRecord.getString("voteChoice"), voteRecord.getDate("timestamp"))) {
+            logger.info("Vote by '{}' on closed proposal {} left out of the tally.", voteRecord.getString("username"), proposalId);
+        }
+        // The proposals list carries the caller's own vote
+        versions.bump(ResourceVersions.Resource.VOTES);
+        if (SeatWebSocket.hasRemoteNodes()) {
+            Date timestamp = voteRecord.getDate("timestamp");
+            SeatWebSocket.submitChange(new JSONObject().put("type", "votesChanged")
+                    .put("proposalId", proposalId.toHexString())
+                    .put("userId", voteRecord.getObjectId("userId").toHexString())
+                    .put("username", voteRecord.getString("username"))
+                    .put("voteChoice", voteRecord.getString("voteChoice"))
+                    .put("timestamp", timestamp != null ? timestamp.getTime() : System.currentTimeMillis()));
         }
-        return sum;
     }
 
-    private int getTotalPresentElectoralStrength(Map<String, Integer> adjustedMap) {
-        int sum = 0;
-        for (Integer strength : adjustedMap.values()) {
-            sum += strength;
-        }
-        return sum;
+    private void writeVoteAccepted(HttpServletResponse response, Document voteRecord) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        JSONObject resp = new JSONObject();
+        resp.put("message", "Vote submitted successfully.");
+        response.setContentType("application/json");
+        response.getWriter().write(resp.toString());
+        logger.info("User '{}' voted on proposal '{}': '{}'", voteRecord.getString("username"),
+                voteRecord.getObjectId("proposalId").toHexString(), voteRecord.getString("voteChoice"));
     }
 
-    private Map<String, Integer> computeAdjustedElectoralStrengths() {
-        List<Document> allUsers = usersCollection.find().into(new ArrayList<>());
-
-        List<Document> nezUsers = allUsers.stream()
-                .filter(u -> "NEZ".equalsIgnoreCase(u.getString("partyAffiliation")))
-                .collect(Collectors.toList());
-        List<Document> otherUsers = allUsers.stream()
-                .filter(u -> !"NEZ".equalsIgnoreCase(u.getString("partyAffiliation")))
-                .collect(Collectors.toList());
-
-        Map<String, Integer> adjustedMap = new HashMap<>();
-
-        // NEZ users just keep their strength if present
-        for (Document nez : nezUsers) {
-            if (nez.getBoolean("present", false)) {
-                String userId = nez.getObjectId("_id").toHexString();
-                int es = safeInt(nez,"electoralStrength", 0);
-                adjustedMap.put(userId, es);
-            }
-        }
-
-        // group others by party
-        Map<String, List<Document>> usersByParty = otherUsers.stream()
-                .collect(Collectors.groupingBy(u -> {
-                    String partyAff = u.getString("partyAffiliation");
-                    return (partyAff != null && !partyAff.trim().isEmpty()) ? partyAff : "Independent";
-                }));
-
-        for (Map.Entry<String, List<Document>> entry : usersByParty.entrySet()) {
-            String party = entry.getKey();
-            List<Document> partyUsers = entry.getValue();
-
-            List<Document> presentUsers = new ArrayList<>();
-            int sumPresent = 0;
-            int sumAbsent = 0;
+    /**
+     * Async variant of the vote write: the proposal lookup and the vote upsert run on
+     * the reactive driver, so no request thread waits on MongoDB. The steps between
+     * them, which may block on the vote journal or a tally load, and the response
+     * are handed back to the container's threads. With write-behind enabled the vote
+     * only touches the local journal.
+     */
+    private void submitVoteAsync(HttpServletRequest request, HttpServletResponse response, Document voteRecord) {
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(30000);
+        // The journal write and the tally load block, so they run on the container's pool, never the driver's thread
+        Executor container = asyncContext::start;
+
+        ReactiveResults.first(reactiveProposalsCollection.find(eq("_id", voteRecord.getObjectId("proposalId"))).first())
+                .thenComposeAsync(proposal -> {
+                    String rejection = voteRejection(proposal);
+                    if (rejection != null) {
+                        throw new CompletionException(new IllegalArgumentException(rejection));
+                    }
+                    if (voteBuffer.isWriteBehind()) {
+                        try {
+                            voteBuffer.submit(voteRecord);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return ReactiveResults.first(reactiveVotesCollection.updateOne(
+                            Filters.and(eq("proposalId", voteRecord.getObjectId("proposalId")), eq("userId", voteRecord.getObjectId("userId"))),
+                            new Document("$set", voteRecord),
+                            new UpdateOptions().upsert(true)));
+                }, container)
+                .whenCompleteAsync((ignored, error) -> {
+                    try {
+                        if (error == null) {
+                            applyVoteToTally(voteRecord);
+                            writeVoteAccepted(response, voteRecord);
+                        } else {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            if (cause instanceof IllegalArgumentException) {
+                                response.sendError(HttpServletResponse.SC_BAD_REQUEST, cause.getMessage());
+                            } else {
+                                logger.error("Error during async vote submission: ", cause);
+                                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An error occurred while submitting the vote.");
+                            }
+                        }
+                    } catch (Exception e) {
+                        logger.error("Error writing async vote response: ", e);
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }, container);
+    }
 
-            for (Document user : partyUsers) {
-                int es = safeInt(user,"electoralStrength", 0);
-                if (user.getBoolean("present", false)) {
-                    presentUsers.add(user);
-                    sumPresent += es;
-                } else {
-                    sumAbsent += es;
+    /**
+     * Closes voting for a batch of proposals: totals come from the live tally,
+     * proposal results are written with one bulkWrite and the voting logs with
+     * one insertMany. Returns the proposalsUpdated change record carrying the results.
+     */
+    private JSONObject endProposalsVoting(List<Document> proposals) {
+        // Best effort: results come from the live tally, and votes left buffered are flushed later
+        if (!voteBuffer.flush()) {
+            logger.warn("Closing voting with buffered votes not yet in MongoDB.");
+        }
+        List<ObjectId> proposalIds = new ArrayList<>();
+        for (Document proposal : proposals) {
+            proposalIds.add(proposal.getObjectId("_id"));
+        }
+        if (SeatWebSocket.hasRemoteNodes()) {
+            // Votes cast on other nodes may not have reached this node's tallies yet; MongoDB has them all
+            for (ObjectId proposalId : proposalIds) {
+                voteTally.remove(proposalId);
+            }
+        }
+        ensureTalliesLoaded(proposalIds);
+        syncTallyStrengths();
+
+        // Denominators are the same for every proposal in the batch
+        ElectoralStrengths strengths = roster.strengths();
+        int totalStrength = strengths.totalStrength();
+        int presentStrength = strengths.presentStrength();
+
+        List<WriteModel<Document>> resultUpdates = new ArrayList<>();
+        List<Document> votingLogs = new ArrayList<>();
+        JSONArray results = new JSONArray();
+        Date closedAt = new Date();
+
+        for (Document proposal : proposals) {
+            ObjectId proposalId = proposal.getObjectId("_id");
+            VoteTally.Result tally = voteTally.result(proposalId);
+            int totalFor = tally.totalFor;
+            int totalAgainst = tally.totalAgainst;
+            int supportersCount = tally.supporters;
+
+            List<Document> detailedVotes = new ArrayList<>();
+            for (VoteTally.VoteEntry vote : tally.votes) {
+                Document detailedVote = new Document("userId", vote.userId.toHexString())
+                        .append("username", vote.username)
+                        .append("voteChoice", vote.voteChoice)
+                        .append("electoralStrength", vote.electoralStrength);
+                if (vote.timestamp != null) {
+                    detailedVote.append("timestamp", vote.timestamp.toInstant().toString());
                 }
+                detailedVotes.add(detailedVote);
             }
 
-            if (sumPresent == 0) continue;
-
-            for (Document pUser : presentUsers) {
-                String userId = pUser.getObjectId("_id").toHexString();
-                int original = safeInt(pUser,"electoralStrength", 0);
-                double adjustedDouble = original + ((double) original * sumAbsent / sumPresent);
-                int adjusted = (int) Math.round(adjustedDouble);
-                adjustedMap.put(userId, adjusted);
+            boolean passed = false;
+            String voteRequirement = proposal.getString("voteRequirement");
+            if (voteRequirement == null) {
+                voteRequirement = "Rel";
             }
-        }
-
-        return adjustedMap;
+            if ("Rel".equals(voteRequirement)) {
+                // Rel: More For than Against and at least 2 For votes
+                passed = (supportersCount >= 2 && totalFor > totalAgainst);
+            } else {
+                double ratio = 0.0;
+                boolean useTotal = voteRequirement.endsWith("+");
+                if (voteRequirement.startsWith("2/3")) {
+                    ratio = 2.0 / 3.0;
+                } else if (voteRequirement.startsWith("3/5")) {
+                    ratio = 3.0 / 5.0;
+                } else if (voteRequirement.startsWith("1/2")) {
+                    ratio = 1.0 / 2.0;
+                }
+                double denominator = useTotal ? totalStrength : presentStrength;
+                passed = (totalFor > ratio * denominator);
+            }
+
+            resultUpdates.add(new UpdateOneModel<>(
+                    Filters.eq("_id", proposalId),
+                    new Document("$set", new Document("passed", passed)
+                            .append("totalFor", totalFor)
+                            .append("totalAgainst", totalAgainst)
+                            .append("votingEnded", true))
+            ));
+
+            results.put(new JSONObject()
+                    .put("id", proposalId.toHexString())
+                    .put("votingEnded", true)
+                    .put("passed", passed)
+                    .put("totalFor", totalFor)
+                    .put("totalAgainst", totalAgainst));
+            votingLogs.add(new Document("proposalId", proposalId)
+                    .append("proposalTitle", proposal.getString("title"))
+                    .append("meetingNumber", proposal.getInteger("meetingNumber", 1))
+                    .append("votes", detailedVotes)
+                    .append("timestamp", closedAt));
+            logger.info("Proposal '{}': For = {}, Against = {}, Passed = {}",
+                    proposal.getString("title"), totalFor, totalAgainst, passed);
+        }
+
+        if (!resultUpdates.isEmpty()) {
+            proposalsCollection.bulkWrite(resultUpdates, new BulkWriteOptions().ordered(false));
+            votingLogsCollection.insertMany(votingLogs);
+        }
+        long version = versions.bump(ResourceVersions.Resource.PROPOSALS);
+        for (ObjectId proposalId : proposalIds) {
+            voteTally.remove(proposalId);
+        }
+        logger.info("Closed voting for {} proposals in one batch.", proposals.size());
+        return new JSONObject()
+                .put("type", "proposalsUpdated")
+                .put("version", versions.stamp(version))
+                .put("results", results);
     }
 
     // Send Discord results with strikethrough for stupid proposals
@@ -1415,9 +1623,15 @@ public class ParliamentServlet extends HttpServlet {
             }
 
             // Fetch present users
-            List<Document> presentUsers = usersCollection.find(eq("present", true)).into(new ArrayList<>());
+            List<Document> presentUsers = roster.present();
             // Fetch the chairman/president
-            Document chairman = usersCollection.find(eq("role", "PRESIDENT")).first();
+            Document chairman = null;
+            for (Document u : roster.all()) {
+                if ("PRESIDENT".equals(u.getString("role"))) {
+                    chairman = u;
+                    break;
+                }
+            }
             String chairmanName = (chairman != null) ? escapeDiscordMarkdown(chairman.getString("username")) : "N/A";
 
             // -----------------------
@@ -1655,22 +1869,18 @@ public class ParliamentServlet extends HttpServlet {
         try {
             HttpSession session = request.getSession(false);
             if (session != null && "PRESIDENT".equals(session.getAttribute("role"))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONArray electionResults = bodyReader.readArray(request, response, RequestBodyReader.BULK_LIMIT);
+                if (electionResults == null) {
+                    return;
                 }
-                JSONArray electionResults = new JSONArray(sb.toString());
 
                 for (int i = 0; i < electionResults.length(); i++) {
                     JSONObject result = electionResults.getJSONObject(i);
                     String username = result.getString("username");
                     int electoralStrength = result.getInt("electoralStrength");
 
-                    usersCollection.updateOne(
-                            eq("username", username),
-                            new Document("$set", new Document("electoralStrength", electoralStrength))
-                    );
+                    roster.updateByUsername(username,
+                            new Document("$set", new Document("electoralStrength", electoralStrength)));
                 }
 
                 response.setStatus(HttpServletResponse.SC_OK);
@@ -1697,19 +1907,16 @@ public class ParliamentServlet extends HttpServlet {
         try {
             HttpSession session = request.getSession(false);
             if (session != null && "PRESIDENT".equals(session.getAttribute("role"))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONArray userUpdatesJson = bodyReader.readArray(request, response, RequestBodyReader.BULK_LIMIT);
+                if (userUpdatesJson == null) {
+                    return;
                 }
-                JSONArray userUpdates = new JSONArray(sb.toString());
 
-                for (int i = 0; i < userUpdates.length(); i++) {
-                    JSONObject userUpdate = userUpdates.getJSONObject(i);
-                    String userIdStr = userUpdate.getString("id");
-                    int electoralStrength = userUpdate.optInt("electoralStrength", 1);
-                    String partyAffiliation = userUpdate.optString("partyAffiliation", "");
-                    String role = userUpdate.optString("role", "MEMBER");
+                for (ApiRequests.UserUpdate userUpdate : ApiRequests.UserUpdate.listFrom(userUpdatesJson)) {
+                    String userIdStr = userUpdate.userId;
+                    int electoralStrength = userUpdate.electoralStrength;
+                    String partyAffiliation = userUpdate.partyAffiliation;
+                    String role = userUpdate.role;
 
                     ObjectId userObjectId;
                     try {
@@ -1729,10 +1936,7 @@ public class ParliamentServlet extends HttpServlet {
                             .append("partyAffiliation", partyAffiliation)
                             .append("role", role);
 
-                    usersCollection.updateOne(
-                            eq("_id", userObjectId),
-                            new Document("$set", updateFields)
-                    );
+                    roster.updateById(userObjectId, new Document("$set", updateFields));
                 }
 
                 response.setStatus(HttpServletResponse.SC_OK);
@@ -1759,21 +1963,20 @@ public class ParliamentServlet extends HttpServlet {
         try {
             HttpSession session = request.getSession(false);
             if (session != null && "PRESIDENT".equals(session.getAttribute("role"))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = request.getReader().readLine()) != null) {
-                    sb.append(line);
+                JSONObject fineJson = bodyReader.readObject(request, response, RequestBodyReader.DEFAULT_LIMIT);
+                if (fineJson == null) {
+                    return;
                 }
-                JSONObject fineJson = new JSONObject(sb.toString());
-                String usernameToFine = fineJson.getString("username").trim();
-                int amount = fineJson.getInt("amount");
+                ApiRequests.Fine fine = ApiRequests.Fine.from(fineJson);
+                String usernameToFine = fine.username;
+                int amount = fine.amount;
 
-                if (!fineJson.has("reason")) {
+                if (fine.reason == null) {
                     response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Fine reason is required.");
                     logger.warn("Fine reason missing for username '{}'.", usernameToFine);
                     return;
                 }
-                String reason = fineJson.getString("reason").trim();
+                String reason = fine.reason;
 
                 if (usernameToFine.isEmpty() || amount <= 0 || reason.isEmpty()) {
                     response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid username, amount, or reason.");
@@ -1781,11 +1984,10 @@ public class ParliamentServlet extends HttpServlet {
                     return;
                 }
 
-                Document query = new Document("username", usernameToFine);
-                Document userDoc = usersCollection.find(query).first();
+                Document userDoc = roster.getByUsername(usernameToFine);
 
                 if (userDoc != null) {
-                    usersCollection.updateOne(query, Updates.inc("fines", amount));
+                    roster.updateByUsername(usernameToFine, Updates.inc("fines", amount));
 
                     String fineId = "FINE-" + System.currentTimeMillis();
                     int meetingNumber = getCurrentMeetingNumber();
@@ -1884,13 +2086,39 @@ public class ParliamentServlet extends HttpServlet {
         }
     }
 
+    // Reload cached system parameters after they were edited directly in MongoDB (President only)
+    private void handleRefreshSystemParameters(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            HttpSession session = request.getSession(false);
+            if (session != null && "PRESIDENT".equals(session.getAttribute("role"))) {
+                systemParameters.refresh();
+                publishSystemParametersChange();
+
+                response.setStatus(HttpServletResponse.SC_OK);
+                JSONObject resp = new JSONObject();
+                resp.put("message", "System parameters refreshed.");
+                resp.put("breakActive", systemParameters.isBreakActive());
+                resp.put("meetingNumber", systemParameters.getMeetingNumber());
+                response.setContentType("application/json");
+                response.getWriter().write(resp.toString());
+                logger.info("President refreshed system parameters from MongoDB.");
+            } else {
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Only the president can refresh system parameters.");
+                logger.warn("Non-president attempted to refresh system parameters.");
+            }
+        } catch (Exception e) {
+            logger.error("Error during refreshing system parameters: ", e);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An error occurred while refreshing system parameters.");
+        }
+    }
+
     // Handle ending the session
     private void handleEndSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
             HttpSession session = request.getSession(false);
             if (session != null && "PRESIDENT".equals(session.getAttribute("role"))) {
                 Document update = new Document("$set", new Document("seatStatus", "NEUTRAL").append("present", false));
-                usersCollection.updateMany(new Document(), update);
+                roster.updateAll(new Document(), update);
 
                 JSONObject endSessionNotification = new JSONObject();
                 endSessionNotification.put("type", "endSession");
@@ -1916,37 +2144,23 @@ public class ParliamentServlet extends HttpServlet {
     private void handleGetUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
             String presentParam = request.getParameter("present");
-            List<Document> users;
-            if ("true".equalsIgnoreCase(presentParam)) {
-                users = usersCollection.find(eq("present", true)).into(new ArrayList<>());
-            } else {
-                users = usersCollection.find().into(new ArrayList<>());
-            }
+            boolean presentOnly = "true".equalsIgnoreCase(presentParam);
 
-            JSONArray usersArray = new JSONArray();
-            for (Document doc : users) {
-                JSONObject userJson = new JSONObject();
-                userJson.put("id", doc.getObjectId("_id").toHexString());
-                // Client-side code is responsible for HTML escaping these values if rendered in HTML to prevent XSS.
-                userJson.put("username", doc.getString("username"));
-                userJson.put("role", doc.getString("role"));
-                userJson.put("partyAffiliation", doc.getString("partyAffiliation"));
-
-                // Add other non-sensitive fields as needed
-                userJson.put("present", doc.getBoolean("present", false));
-                userJson.put("seatStatus", doc.getString("seatStatus"));
-                userJson.put("fines", safeInt(doc,"fines", 0));
-                userJson.put("electoralStrength", safeInt(doc,"electoralStrength",1));
-                // userJson.remove("password"); // Not needed as we are selectively adding
-
-                String seatStatus = doc.getString("seatStatus");
-                userJson.put("seatStatus", seatStatus != null ? seatStatus : "NEUTRAL");
-
-                usersArray.put(userJson);
+            // Unchanged roster: answer from the version counter alone
+            if (ResourceVersions.notModified(request, response, versions.etag("u", roster.version(), presentOnly ? "present" : null))) {
+                return;
             }
 
+            // Streamed straight from the roster; client-side code is responsible for HTML escaping
             response.setContentType("application/json");
-            response.getWriter().write(usersArray.toString());
+            JsonWriter json = new JsonWriter(response.getWriter());
+            json.beginArray();
+            for (Document doc : roster.view()) {
+                if (!presentOnly || doc.getBoolean("present", false)) {
+                    JsonProjection.USER.write(doc, json);
+                }
+            }
+            json.endArray();
             logger.info("Fetched users. Present only: {}", "true".equalsIgnoreCase(presentParam));
         } catch (Exception e) {
             logger.error("Error during fetching users: ", e);
@@ -1988,28 +2202,12 @@ public class ParliamentServlet extends HttpServlet {
                 return;
             }
 
-            Document userDoc = usersCollection.find(eq("_id", new ObjectId(targetUserIdFromPath))).first();
+            Document userDoc = roster.getById(new ObjectId(targetUserIdFromPath));
 
             if (userDoc != null) {
-                JSONObject userJson = new JSONObject();
-                userJson.put("id", userDoc.getObjectId("_id").toHexString());
                 // Client-side code is responsible for HTML escaping these values if rendered in HTML to prevent XSS.
-                userJson.put("username", userDoc.getString("username"));
-                userJson.put("role", userDoc.getString("role"));
-                userJson.put("partyAffiliation", userDoc.getString("partyAffiliation"));
-
-                // Add other non-sensitive fields as needed
-                userJson.put("present", userDoc.getBoolean("present", false));
-                userJson.put("seatStatus", userDoc.getString("seatStatus"));
-                userJson.put("fines", safeInt(userDoc,"fines", 0));
-                userJson.put("electoralStrength", safeInt(userDoc,"electoralStrength",1));
-                // userJson.remove("password"); // Not needed as we are selectively adding
-
-                String seatStatus = userDoc.getString("seatStatus");
-                userJson.put("seatStatus", seatStatus != null ? seatStatus : "NEUTRAL");
-
                 response.setContentType("application/json");
-                response.getWriter().write(userJson.toString());
+                JsonProjection.USER.write(userDoc, new JsonWriter(response.getWriter()));
                 logger.info("User '{}' (Role: '{}') fetched user with id '{}'.", sessionUsername, sessionUserRole, targetUserIdFromPath);
             } else {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND, "User not found.");
@@ -2027,84 +2225,75 @@ public class ParliamentServlet extends HttpServlet {
     // Fetch all proposals
     private void handleGetProposals(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            List<Document> proposals = proposalsCollection.find().into(new ArrayList<>());
-
             HttpSession session = request.getSession(false);
             String userId = null;
             if (session != null && session.getAttribute("userId") != null) {
                 userId = (String) session.getAttribute("userId");
             }
 
-            JSONArray proposalsArray = new JSONArray();
-            for (Document doc : proposals) {
-                JSONObject proposalJson = new JSONObject();
-                proposalJson.put("id", doc.getObjectId("_id").toHexString());
-                // Client-side code is responsible for HTML escaping these values if rendered in HTML to prevent XSS.
-                proposalJson.put("title", doc.getString("title"));
-                proposalJson.put("party", doc.getString("party"));
-                // Add other fields from 'doc' as needed, respecting original structure
-                proposalJson.put("proposalNumber", doc.getInteger("proposalNumber"));
-                proposalJson.put("isPriority", doc.getBoolean("isPriority"));
-                proposalJson.put("isConstitutional", doc.getBoolean("isConstitutional"));
-                proposalJson.put("voteRequirement", doc.getString("voteRequirement"));
-                proposalJson.put("stupid", doc.getBoolean("stupid"));
-                proposalJson.put("associationType", doc.getString("associationType"));
-                proposalJson.put("referencedProposal", doc.getString("referencedProposal"));
-                proposalJson.put("proposalVisual", doc.getString("proposalVisual"));
-                proposalJson.put("meetingNumber", doc.getInteger("meetingNumber"));
-                proposalJson.put("votingEnded", doc.getBoolean("votingEnded", false));
-
-
-                if (doc.getBoolean("votingEnded", false)) {
-                    proposalJson.put("passed", doc.getBoolean("passed", false));
-                    proposalJson.put("totalFor", doc.getInteger("totalFor", 0));
-                    proposalJson.put("totalAgainst", doc.getInteger("totalAgainst", 0));
-                }
+            // The list embeds the caller's own votes, so the tag is per user and follows the vote counter too
+            long version = versions.current(ResourceVersions.Resource.PROPOSALS);
+            String viewer = (userId != null ? userId : "anonymous") + "-" + versions.current(ResourceVersions.Resource.VOTES);
+            // Clients apply proposal change records newer than this version and refetch on a gap
+            response.setHeader("X-Resource-Version", versions.stamp(version));
+            if (ResourceVersions.notModified(request, response, versions.etag("p", version, viewer))) {
+                return;
+            }
 
-                if (userId != null) {
-                    try {
-                        ObjectId userObjectId = new ObjectId(userId); // userId is from session
-                        Document vote = votesCollection.find(Filters.and(
-                                eq("proposalId", doc.getObjectId("_id")), // doc.getObjectId already returns ObjectId
-                                eq("userId", userObjectId)
-                        )).first();
-                        if (vote != null) {
-                            // Client-side code is responsible for HTML escaping this value if rendered in HTML to prevent XSS.
-                            proposalJson.put("userVote", vote.getString("voteChoice"));
-                        } else {
-                            proposalJson.put("userVote", "Abstain"); // Default if no vote found
-                        }
-                    } catch (IllegalArgumentException e) {
-                        logger.warn("Invalid userId '{}' found in session during handleGetProposals. Skipping user vote for this proposal.", userId);
-                        // No user-supplied string here, just a default
-                        proposalJson.put("userVote", "Abstain"); // Or some other indicator of an issue
-                    }
-                } else {
-                     // No user-supplied string here, just a default
-                    proposalJson.put("userVote", "Abstain"); // Default for non-authenticated users
+            // Resolve all of the user's votes in one query instead of one per proposal
+            Map<ObjectId, String> userVotes = Collections.emptyMap();
+            if (userId != null) {
+                try {
+                    userVotes = findVoteChoicesByUser(new ObjectId(userId)); // userId is from session
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Invalid userId '{}' found in session during handleGetProposals. Skipping user votes.", userId);
                 }
-
-                proposalsArray.put(proposalJson);
             }
 
+            // Default to Abstain if no vote found or the user is not authenticated
+            Map<ObjectId, String> votes = userVotes;
+            JsonProjection.FieldWriter userVote = (doc, out) ->
+                    out.name("userVote").value(votes.getOrDefault(doc.getObjectId("_id"), "Abstain"));
+
+            // Each proposal is encoded as the cursor yields it; client-side code is responsible for HTML escaping
             response.setContentType("application/json");
-            response.getWriter().write(proposalsArray.toString());
+            JsonWriter json = new JsonWriter(response.getWriter());
+            json.beginArray();
+            for (Document doc : proposalsCollection.find()) {
+                JsonProjection.PROPOSAL_SUMMARY.write(doc, json, userVote);
+            }
+            json.endArray();
             logger.info("Fetched all proposals.");
         } catch (Exception e) {
             logger.error("Error during fetching proposals: ", e);
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An error occurred while fetching proposals.");
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An error occurred while fetching proposals.");
+            }
+        }
+    }
+
+    // Map of proposalId -> voteChoice for every vote cast by the given user
+    private Map<ObjectId, String> findVoteChoicesByUser(ObjectId userObjectId) {
+        Map<ObjectId, String> choices = new HashMap<>();
+        for (Document vote : votesCollection.find(eq("userId", userObjectId))
+                .projection(Projections.include("proposalId", "voteChoice"))) {
+            choices.put(vote.getObjectId("proposalId"), vote.getString("voteChoice"));
         }
+        // Votes still waiting in the write-behind buffer are newer than what MongoDB has
+        choices.putAll(voteBuffer.pendingChoicesFor(userObjectId));
+        return choices;
     }
 
     // Get the speaking queue
     private void handleGetQueue(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            List<Document> queueUsers = usersCollection.find(new Document("seatStatus",
-                            new Document("$in", List.of("REQUESTING_TO_SPEAK", "OBJECTING"))))
-                    .into(new ArrayList<>());
-
             JSONArray queueArray = new JSONArray();
-            for (Document doc : queueUsers) {
+            for (Document doc : roster.all()) {
+                String seatStatus = doc.getString("seatStatus");
+                if (!"REQUESTING_TO_SPEAK".equals(seatStatus) && !"OBJECTING".equals(seatStatus)) {
+                    continue;
+                }
                 JSONObject queueItem = new JSONObject();
                 queueItem.put("username", doc.getString("username"));
                 queueItem.put("status", doc.getString("seatStatus"));
@@ -2139,12 +2328,10 @@ public class ParliamentServlet extends HttpServlet {
         String sessionUsername = (String) session.getAttribute("username");
 
         try {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = request.getReader().readLine()) != null) {
-                sb.append(line);
+            JSONObject proposalJson = bodyReader.readObject(request, response, RequestBodyReader.DEFAULT_LIMIT);
+            if (proposalJson == null) {
+                return;
             }
-            JSONObject proposalJson = new JSONObject(sb.toString());
 
             String title = proposalJson.optString("title", "").trim();
             String description = proposalJson.optString("description", "").trim(); // Already optional
@@ -2344,6 +2531,7 @@ public class ParliamentServlet extends HttpServlet {
                 .append("pendingProposalId", pendingProposalDoc.getObjectId("_id"));
 
             proposalsCollection.insertOne(mainProposalDoc);
+            long version = versions.bump(ResourceVersions.Resource.PROPOSALS);
             ObjectId mainProposalId = mainProposalDoc.getObjectId("_id");
 
             // Update the original pending proposal IF main proposal insertion was successful
@@ -2398,10 +2586,9 @@ public class ParliamentServlet extends HttpServlet {
 
             // WebSocket Broadcast for the new main proposal
             if (insertedProposal != null) {
-                JSONObject proposalUpdateMsg = new JSONObject();
-                proposalUpdateMsg.put("type", "proposalUpdate"); // Using "proposalUpdate" as it's a new proposal being added to the main list
-                proposalUpdateMsg.put("proposal", responseJson); // Use the already constructed JSON
-                SeatWebSocket.broadcast(proposalUpdateMsg);
+                // Same shape as every other proposalUpdate, so clients apply it like any change record
+                SeatWebSocket.broadcast(JsonWriter.event("proposalUpdate", "proposal",
+                        JsonProjection.PROPOSAL_SUMMARY.toJson(insertedProposal), versions.stamp(version)));
                 logger.info("Broadcasted new main proposal (from pending) id '{}'.", mainProposalId.toHexString());
             }
 
@@ -2461,62 +2648,18 @@ public class ParliamentServlet extends HttpServlet {
         }
     }
 
-    private void broadcastQueueUpdate() {
-        try {
-            List<Document> queueItems = parliamentQueueCollection.find(
-                Filters.or(Filters.eq("status", "pending"), Filters.eq("status", "active"))
-            ).sort(Sorts.orderBy(Sorts.ascending("priority"), Sorts.ascending("timestamp"))).into(new ArrayList<>());
-
-            JSONArray queueJsonArray = new JSONArray();
-            for (Document item : queueItems) {
-                JSONObject queueItemJson = new JSONObject();
-                // Convert '_id' to 'id' and other fields from the document
-                queueItemJson.put("id", item.getObjectId("_id").toHexString());
-                queueItemJson.put("type", item.getString("type"));
-                queueItemJson.put("status", item.getString("status"));
-                queueItemJson.put("priority", item.getInteger("priority"));
-                queueItemJson.put("timestamp", item.getDate("timestamp").toInstant().toString());
-
-                // Add type-specific fields
-                //  ── inside the for-loop that builds queueItemJson ─────────────────────
-                if ("PROPOSAL_DISCUSSION".equals(item.getString("type"))) {
-                    queueItemJson.put("proposalId", item.getObjectId("proposalId").toHexString());
-                    queueItemJson.put("proposalTitle", item.getString("proposalTitle"));
-                    queueItemJson.put("proposalVisual", item.getString("proposalVisual"));
-
-                } else if ("SPEAKER_REQUEST".equals(item.getString("type"))) {
-                    queueItemJson.put("userId", item.getObjectId("userId").toHexString());
-                    queueItemJson.put("username", item.getString("username"));
-                    queueItemJson.put("requestType", item.getString("requestType"));
-
-                } else if ("OBJECTION".equals(item.getString("type"))) {             //  ← NEW
-                    queueItemJson.put("userId", item.getObjectId("userId").toHexString());
-                    queueItemJson.put("username", item.getString("username"));       //  ← NEW
-                }
-
-                // Add other fields as necessary, ensuring they are handled if they might not exist.
-                // Example: item.get("someField", defaultValue) or check with item.containsKey("someField")
-
-                queueJsonArray.put(queueItemJson);
-            }
-
-            JSONObject message = new JSONObject();
-            message.put("type", "queueUpdate");
-            message.put("queue", queueJsonArray);
-            SeatWebSocket.broadcast(message);
-            logger.info("Broadcasted queue update with {} items.", queueItems.size());
-        } catch (Exception e) {
-            logger.error("Error broadcasting queue update: ", e);
-        }
+    // The queue as a WebSocket snapshot; the client applies later queueDelta messages on top of it
+    private String queueSnapshotMessage() {
+        SpeakingQueue.Snapshot snapshot = speakingQueue.snapshot();
+        JSONObject message = new JSONObject();
+        message.put("type", "queueUpdate");
+        message.put("version", versions.stamp(snapshot.sequence));
+        message.put("queue", snapshot.queue);
+        return message.toString();
     }
 
     private void repopulateProposalQueue() {
         try {
-            // Clear existing 'pending' proposals from the queue to avoid duplicates
-            parliamentQueueCollection.deleteMany(
-                Filters.and(Filters.eq("type", "PROPOSAL_DISCUSSION"), Filters.eq("status", "pending"))
-            );
-
             List<Document> activeProposals = proposalsCollection.find(
                 Filters.and(
                     Filters.eq("votingEnded", false),
@@ -2550,11 +2693,9 @@ public class ParliamentServlet extends HttpServlet {
                 queueEntries.add(queueItem);
             }
 
-            if (!queueEntries.isEmpty()) {
-                parliamentQueueCollection.insertMany(queueEntries);
-            }
+            // Replaces the existing 'pending' proposals in the queue to avoid duplicates, and broadcasts the change
+            speakingQueue.replaceProposalDiscussions(queueEntries);
             logger.info("Repopulated proposal discussion items in the queue with {} entries.", queueEntries.size());
-            broadcastQueueUpdate(); // Broadcast after repopulating
         } catch (Exception e) {
             logger.error("Error repopulating proposal queue: ", e);
         }
@@ -2639,60 +2780,16 @@ public class ParliamentServlet extends HttpServlet {
             return;
         }
 
-        try {
-            List<Document> queueItems = parliamentQueueCollection.find(
-                Filters.or(Filters.eq("status", "pending"), Filters.eq("status", "active"))
-            ).sort(Sorts.orderBy(Sorts.ascending("priority"), Sorts.ascending("timestamp"))).into(new ArrayList<>());
-
-            JSONArray queueJsonArray = new JSONArray();
-            for (Document item : queueItems) {
-                JSONObject queueItemJson = new JSONObject();
-                // Convert '_id' to 'id' and other fields from the document
-                queueItemJson.put("id", item.getObjectId("_id").toHexString());
-                queueItemJson.put("type", item.getString("type"));
-                queueItemJson.put("status", item.getString("status"));
-                queueItemJson.put("priority", item.getInteger("priority"));
-
-                Date timestamp = item.getDate("timestamp");
-                if (timestamp != null) {
-                    queueItemJson.put("timestamp", timestamp.toInstant().toString());
-                } else {
-                    // Handle case where timestamp might be null, though it shouldn't be based on insertion logic
-                    queueItemJson.put("timestamp", "");
-                }
-
-
-                // Add type-specific fields, ensuring to check for nulls if fields are optional
-                if ("PROPOSAL_DISCUSSION".equals(item.getString("type"))) {
-                    if (item.getObjectId("proposalId") != null) {
-                        queueItemJson.put("proposalId", item.getObjectId("proposalId").toHexString());
-                    }
-                    queueItemJson.put("proposalTitle", item.getString("proposalTitle")); // XSS: Client responsible for escaping
-                    queueItemJson.put("proposalVisual", item.getString("proposalVisual")); // XSS: Client responsible for escaping
-                } else if ("SPEAKER_REQUEST".equals(item.getString("type"))) {
-                     if (item.getObjectId("userId") != null) {
-                        queueItemJson.put("userId", item.getObjectId("userId").toHexString());
-                    }
-                    queueItemJson.put("username", item.getString("username")); // XSS: Client responsible for escaping
-                    queueItemJson.put("requestType", item.getString("requestType"));
-                } else if ("OBJECTION".equals(item.getString("type"))) {
-                    // same fields as speaker request
-                    queueItemJson.put("userId",      item.getObjectId("userId").toHexString());
-                    queueItemJson.put("username",    item.getString("username"));
-                    queueItemJson.put("requestType", "OBJECTING");
-                }
-
-                queueJsonArray.put(queueItemJson);
-            }
-
-            response.setContentType("application/json");
-            response.getWriter().write(queueJsonArray.toString());
-            logger.info("User '{}' fetched parliament queue with {} items.", session.getAttribute("username"), queueItems.size());
-
-        } catch (Exception e) {
-            logger.error("Error fetching parliament queue for user '{}': ", session.getAttribute("username"), e);
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An error occurred while fetching the parliament queue.");
+        // Served from memory; the sequence lets the client apply later queueDelta messages on top
+        SpeakingQueue.Snapshot snapshot = speakingQueue.snapshot();
+        response.setHeader("X-Resource-Version", versions.stamp(snapshot.sequence));
+        if (ResourceVersions.notModified(request, response, versions.etag("q", snapshot.sequence, null))) {
+            return;
         }
+
+        response.setContentType("application/json");
+        response.getWriter().write(snapshot.queue.toString());
+        logger.info("User '{}' fetched parliament queue with {} items.", session.getAttribute("username"), snapshot.queue.length());
     }
 
     private void handleRequestSpeak(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -2716,16 +2813,7 @@ public class ParliamentServlet extends HttpServlet {
 
         try {
             // Check if user already has an active ("pending") "SPEAKER_REQUEST" or "OBJECTION"
-            Document existingRequest = parliamentQueueCollection.find(
-                Filters.and(
-                    Filters.eq("userId", userObjectId),
-                    Filters.eq("status", "pending"),
-                    Filters.or(
-                        Filters.eq("type", "SPEAKER_REQUEST"),
-                        Filters.eq("type", "OBJECTION")
-                    )
-                )
-            ).first();
+            Document existingRequest = speakingQueue.findPending(userObjectId, "SPEAKER_REQUEST", "OBJECTION");
 
             if (existingRequest != null) {
                 response.sendError(HttpServletResponse.SC_CONFLICT, "You are already in the queue or have an active objection.");
@@ -2738,20 +2826,16 @@ public class ParliamentServlet extends HttpServlet {
             String proposalIdStr = null;
             ObjectId proposalObjectId = null;
             try {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                // Check if request has a body. getReader() might throw if no body.
+                // The body is optional; when present it must be a JSON object
                 if (request.getContentLengthLong() > 0) {
-                    while ((line = request.getReader().readLine()) != null) {
-                        sb.append(line);
+                    JSONObject requestJson = bodyReader.readObject(request, response, RequestBodyReader.SMALL_LIMIT);
+                    if (requestJson == null) {
+                        return;
                     }
-                    if (sb.length() > 0) {
-                        JSONObject requestJson = new JSONObject(sb.toString());
-                        proposalIdStr = requestJson.optString("proposalId", null);
-                        if (proposalIdStr != null && !proposalIdStr.trim().isEmpty()) {
-                            proposalObjectId = new ObjectId(proposalIdStr.trim());
-                            // Optional: Validate if proposalId actually exists in proposalsCollection
-                        }
+                    proposalIdStr = requestJson.optString("proposalId", null);
+                    if (proposalIdStr != null && !proposalIdStr.trim().isEmpty()) {
+                        proposalObjectId = new ObjectId(proposalIdStr.trim());
+                        // Optional: Validate if proposalId actually exists in proposalsCollection
                     }
                 }
             } catch (IOException | org.json.JSONException e) {
@@ -2776,8 +2860,7 @@ public class ParliamentServlet extends HttpServlet {
                 queueItem.append("proposalId", proposalObjectId);
             }
 
-            parliamentQueueCollection.insertOne(queueItem);
-            broadcastQueueUpdate();
+            speakingQueue.insert(queueItem);
 
             response.setStatus(HttpServletResponse.SC_OK);
             JSONObject respJson = new JSONObject();
@@ -2812,74 +2895,30 @@ public class ParliamentServlet extends HttpServlet {
         }
 
         try {
-            // Atomically update: set current active to pending, then new one to active
-            // 1. Set all currently "active" items to "pending"
-            parliamentQueueCollection.updateMany(
-                Filters.eq("status", "active"),
-                Updates.set("status", "pending")
-            );
-
-            // 2. Set the specified item to "active"
-            Document updateQuery = new Document("_id", itemObjectId);
-            Document updateOperation = new Document("$set", new Document("status", "active"));
-            var updateResult = parliamentQueueCollection.updateOne(updateQuery, updateOperation);
-
-            if (updateResult.getModifiedCount() == 0) {
-                 // Check if the item actually exists, because updateOne won't fail if no doc matches _id
-                Document checkItemExists = parliamentQueueCollection.find(eq("_id", itemObjectId)).first();
-                if (checkItemExists == null) {
-                    response.sendError(HttpServletResponse.SC_NOT_FOUND, "Queue item not found.");
-                    logger.warn("President '{}' tried to set non-existent queue item ID '{}' active.", presidentUsername, itemIdStr);
-                    return;
-                }
-                // If item exists but wasn't modified, it might already be active or some other issue.
-                // For now, we assume if it exists, it should have been set active or was already active.
-                // If it was already active, the previous updateMany would make it pending, then this would make it active again.
-                logger.info("Queue item ID '{}' was targeted to be set active by President '{}'. Modified count was 0, but item exists. Status: {}", itemIdStr, presidentUsername, checkItemExists.getString("status"));
-
-            }
-
-            Document activeItem = parliamentQueueCollection.find(eq("_id", itemObjectId)).first();
+            // Set current active to pending, then the new one to active
+            Document activeItem = speakingQueue.setActive(itemObjectId);
             if (activeItem == null) {
-                 // Should not happen if updateResult.getModifiedCount() > 0 or if checkItemExists found it
-                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to retrieve active item after update.");
-                logger.error("CRITICAL: Failed to retrieve queue item ID '{}' after attempting to set active by President '{}'.", itemIdStr, presidentUsername);
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Queue item not found.");
+                logger.warn("President '{}' tried to set non-existent queue item ID '{}' active.", presidentUsername, itemIdStr);
                 return;
             }
 
-
             // If active item is a speaker request or objection, update user's seatStatus
             String itemType = activeItem.getString("type");
             if ("SPEAKER_REQUEST".equals(itemType) || "OBJECTION".equals(itemType)) {
                 ObjectId userIdToUpdate = activeItem.getObjectId("userId");
                 if (userIdToUpdate != null) {
-                    Document userUpdateQuery = new Document("_id", userIdToUpdate);
                     Document userUpdateOperation = new Document("$set", new Document("seatStatus", "SPEAKING"));
-                    usersCollection.updateOne(userUpdateQuery, userUpdateOperation);
+                    Document updatedUserDoc = roster.updateById(userIdToUpdate, userUpdateOperation);
 
                     // Broadcast individual user seat update
-                    Document updatedUserDoc = usersCollection.find(userUpdateQuery).first();
                     if (updatedUserDoc != null) {
-                        JSONObject userJsonForBroadcast = new JSONObject();
-                        userJsonForBroadcast.put("id", updatedUserDoc.getObjectId("_id").toHexString());
-                        userJsonForBroadcast.put("username", updatedUserDoc.getString("username"));
-                        userJsonForBroadcast.put("role", updatedUserDoc.getString("role"));
-                        userJsonForBroadcast.put("partyAffiliation", updatedUserDoc.getString("partyAffiliation"));
-                        userJsonForBroadcast.put("present", updatedUserDoc.getBoolean("present", false));
-                        userJsonForBroadcast.put("seatStatus", updatedUserDoc.getString("seatStatus")); // Should be SPEAKING
-                        userJsonForBroadcast.put("fines", safeInt(updatedUserDoc,"fines", 0));
-                        userJsonForBroadcast.put("electoralStrength", safeInt(updatedUserDoc,"electoralStrength",1));
-
-                        JSONObject seatUpdateMsg = new JSONObject();
-                        seatUpdateMsg.put("type", "seatUpdate");
-                        seatUpdateMsg.put("user", userJsonForBroadcast);
-                        SeatWebSocket.broadcast(seatUpdateMsg);
+                        SeatWebSocket.broadcast(JsonWriter.event("seatUpdate", "user", JsonProjection.USER.toJson(updatedUserDoc)));
                         logger.info("Broadcasted seatUpdate for user '{}' (set to SPEAKING) due to queue item '{}' activation.", updatedUserDoc.getString("username"), itemIdStr);
                     }
                 }
             }
 
-            broadcastQueueUpdate();
             response.setStatus(HttpServletResponse.SC_OK);
             JSONObject respJson = new JSONObject();
             respJson.put("message", "Queue item set to active.");
@@ -2929,9 +2968,8 @@ public class ParliamentServlet extends HttpServlet {
         }
 
         try {
-            Document itemToComplete = parliamentQueueCollection.find(
-                Filters.and(Filters.eq("_id", itemObjectId), Filters.eq("status", "active"))
-            ).first();
+            // Marks the item completed if it is the active one
+            Document itemToComplete = speakingQueue.completeActive(itemObjectId);
 
             if (itemToComplete == null) {
                 // Check if the item exists at all to provide a more specific error if it's not found vs. not active
@@ -2946,42 +2984,22 @@ public class ParliamentServlet extends HttpServlet {
                 return;
             }
 
-            // Update item status to "completed"
-            Document updateOperation = new Document("$set", new Document("status", "completed").append("completedTimestamp", new Date()));
-            parliamentQueueCollection.updateOne(eq("_id", itemObjectId), updateOperation);
-
             // If item was speaker request or objection, update user's seatStatus to NEUTRAL
             String itemType = itemToComplete.getString("type");
             if ("SPEAKER_REQUEST".equals(itemType) || "OBJECTION".equals(itemType)) {
                 ObjectId userIdToUpdate = itemToComplete.getObjectId("userId");
                 if (userIdToUpdate != null) {
-                    Document userUpdateQuery = new Document("_id", userIdToUpdate);
                     Document userUpdateOperation = new Document("$set", new Document("seatStatus", "NEUTRAL"));
-                    usersCollection.updateOne(userUpdateQuery, userUpdateOperation);
+                    Document updatedUserDoc = roster.updateById(userIdToUpdate, userUpdateOperation);
 
                     // Broadcast individual user seat update
-                    Document updatedUserDoc = usersCollection.find(userUpdateQuery).first();
                     if (updatedUserDoc != null) {
-                        JSONObject userJsonForBroadcast = new JSONObject();
-                        userJsonForBroadcast.put("id", updatedUserDoc.getObjectId("_id").toHexString());
-                        userJsonForBroadcast.put("username", updatedUserDoc.getString("username"));
-                        userJsonForBroadcast.put("role", updatedUserDoc.getString("role"));
-                        userJsonForBroadcast.put("partyAffiliation", updatedUserDoc.getString("partyAffiliation"));
-                        userJsonForBroadcast.put("present", updatedUserDoc.getBoolean("present", false));
-                        userJsonForBroadcast.put("seatStatus", updatedUserDoc.getString("seatStatus")); // Should be NEUTRAL
-                        userJsonForBroadcast.put("fines", safeInt(updatedUserDoc,"fines", 0));
-                        userJsonForBroadcast.put("electoralStrength", safeInt(updatedUserDoc,"electoralStrength",1));
-                        
-                        JSONObject seatUpdateMsg = new JSONObject();
-                        seatUpdateMsg.put("type", "seatUpdate");
-                        seatUpdateMsg.put("user", userJsonForBroadcast);
-                        SeatWebSocket.broadcast(seatUpdateMsg);
+                        SeatWebSocket.broadcast(JsonWriter.event("seatUpdate", "user", JsonProjection.USER.toJson(updatedUserDoc)));
                         logger.info("Broadcasted seatUpdate for user '{}' (set to NEUTRAL) due to queue item '{}' completion.", updatedUserDoc.getString("username"), itemIdStr);
                     }
                 }
             }
 
-            broadcastQueueUpdate();
             response.setStatus(HttpServletResponse.SC_OK);
             JSONObject respJson = new JSONObject();
             respJson.put("message", "Queue item completed.");
@@ -0,0 +1,48 @@
+package com.example;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bridges reactive-streams publishers from the async MongoDB driver to
+ * CompletableFuture, which is all the async servlet handlers need.
+ */
+public final class ReactiveResults {
+
+    private ReactiveResults() {
+    }
+
+    /** Completes with the first element, or null if the publisher completes empty. */
+    public static <T> CompletableFuture<T> first(Publisher<T> publisher) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                result.complete(item);
+                subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(null);
+            }
+        });
+        return result;
+    }
+}
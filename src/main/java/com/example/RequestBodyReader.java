@@ -0,0 +1,119 @@
+package com.example;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads JSON request bodies for the API handlers.
+ * <p>
+ * The body is read once, as bytes, into a pooled buffer and bounded by a
+ * per-endpoint limit. A declared Content-Length over the limit is refused before
+ * anything is read, and a body that does not start like the expected JSON value is
+ * refused before it is decoded. On refusal the error response has already been
+ * sent and null is returned, so handlers just return.
+ * <p>
+ * JSON syntax errors surface as {@link org.json.JSONException}, which the handlers
+ * already map to 400.
+ */
+public class RequestBodyReader {
+    private static final Logger logger = LoggerFactory.getLogger(RequestBodyReader.class);
+
+    /** Single small objects: votes, seat status, login, queue requests. */
+    public static final int SMALL_LIMIT = 4 * 1024;
+    /** Proposals, fines and other free-text payloads. */
+    public static final int DEFAULT_LIMIT = 16 * 1024;
+    /** Whole-roster arrays: election results and bulk user updates. */
+    public static final int BULK_LIMIT = 256 * 1024;
+
+    private static final int POOLED_BUFFER_SIZE = DEFAULT_LIMIT;
+    private static final int POOL_CAPACITY = 64;
+
+    private final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+    /** Reads a JSON object body, or sends 400/413 and returns null. */
+    public JSONObject readObject(HttpServletRequest request, HttpServletResponse response, int maxBytes) throws IOException {
+        String body = read(request, response, maxBytes, '{');
+        return body != null ? new JSONObject(new JSONTokener(body)) : null;
+    }
+
+    /** Reads a JSON array body, or sends 400/413 and returns null. */
+    public JSONArray readArray(HttpServletRequest request, HttpServletResponse response, int maxBytes) throws IOException {
+        String body = read(request, response, maxBytes, '[');
+        return body != null ? new JSONArray(new JSONTokener(body)) : null;
+    }
+
+    private String read(HttpServletRequest request, HttpServletResponse response, int maxBytes, char expectedStart) throws IOException {
+        long declaredLength = request.getContentLengthLong();
+        if (declaredLength > maxBytes) {
+            rejectTooLarge(request, response, declaredLength, maxBytes);
+            return null;
+        }
+
+        byte[] buffer = borrow();
+        try {
+            int length = 0;
+            InputStream in = request.getInputStream();
+            while (true) {
+                if (length == buffer.length) {
+                    // Only limits of at least the pooled size get here; grown buffers are not pooled
+                    buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxBytes + 1));
+                }
+                // Never ask for more than one byte past the limit, which is enough to know it was exceeded
+                int read = in.read(buffer, length, Math.min(buffer.length, maxBytes + 1) - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+                if (length > maxBytes) {
+                    rejectTooLarge(request, response, length, maxBytes);
+                    return null;
+                }
+            }
+
+            int start = 0;
+            while (start < length && isWhitespace(buffer[start])) {
+                start++;
+            }
+            if (start == length || buffer[start] != expectedStart) {
+                logger.warn("Malformed JSON in request to {}: expected '{}' at start of body.", request.getRequestURI(), expectedStart);
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed JSON in request body.");
+                return null;
+            }
+            return new String(buffer, start, length - start, StandardCharsets.UTF_8);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private void rejectTooLarge(HttpServletRequest request, HttpServletResponse response, long size, int maxBytes) throws IOException {
+        logger.warn("Request body to {} exceeds {} bytes ({}).", request.getRequestURI(), maxBytes, size);
+        response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body too large.");
+    }
+
+    private byte[] borrow() {
+        byte[] pooled = pool.poll();
+        return pooled != null ? pooled : new byte[POOLED_BUFFER_SIZE];
+    }
+
+    private void release(byte[] buffer) {
+        if (buffer.length == POOLED_BUFFER_SIZE) {
+            pool.offer(buffer);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,100 @@
+package com.example;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic change counters for the list endpoints, exposed as strong ETags.
+ * <p>
+ * Mutating handlers bump the counter after their write has reached MongoDB, and
+ * readers take the counter before reading, so an ETag can only ever be older than
+ * the content it labels, never newer. Every tag carries a per-process epoch so a
+ * restart (or another node behind the same proxy) never answers 304 for a tag it
+ * did not issue.
+ * <p>
+ * The proposals counter doubles as the version of the proposal change feed: each
+ * bump is broadcast as one change record stamped with {@link #stamp}, and the list
+ * endpoint reports the stamp it was read at, so clients can apply records in order
+ * and refetch only when they see a gap.
+ */
+public class ResourceVersions {
+
+    public enum Resource {
+        PROPOSALS("p"),
+        // Votes only change the caller's own view of the proposals list
+        VOTES("v");
+
+        private final String tag;
+
+        Resource(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong proposals = new AtomicLong();
+    private final AtomicLong votes = new AtomicLong();
+
+    public long current(Resource resource) {
+        return counter(resource).get();
+    }
+
+    public long bump(Resource resource) {
+        return counter(resource).incrementAndGet();
+    }
+
+    public String etag(Resource resource, String variant) {
+        return etag(resource.tag, current(resource), variant);
+    }
+
+    // Version as sent to clients: "<epoch>-<version>", so a client can tell a restart from a gap
+    public String stamp(long version) {
+        return epoch + '-' + version;
+    }
+
+    // For resources that keep their own counter, such as the roster cache
+    public String etag(String tag, long version, String variant) {
+        StringBuilder etag = new StringBuilder(32).append('"').append(tag).append('-').append(epoch).append('-').append(version);
+        if (variant != null) {
+            etag.append('-').append(variant);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Sets the ETag on the response and answers 304 if the request already holds it.
+     * Returns true when the response is complete and the handler should return.
+     */
+    public static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+        response.setHeader("ETag", etag);
+        // Browsers must revalidate, and shared caches must not serve one member's view to another
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    // If-None-Match uses the weak comparison: W/ prefixes are ignored, "*" matches anything
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AtomicLong counter(Resource resource) {
+        return resource == Resource.PROPOSALS ? proposals : votes;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.mongodb.client.model.Filters.eq;
+
+/**
+ * Write-through, in-memory copy of the users collection.
+ * <p>
+ * The roster is small and changes rarely during a session, so every read is served
+ * from memory. All writes still go to MongoDB first; the resulting document then
+ * replaces the cached one. Cached documents are treated as immutable snapshots and
+ * are never modified in place. Each mutation bumps {@link #version()} and is
+ * mirrored into the party aggregates returned by {@link #strengths()}.
+ * <p>
+ * Every update also increments the user's {@code rev} field in the same write, so
+ * when two updates of one user complete out of order the older document, with the
+ * lower revision, never replaces the newer one.
+ * <p>
+ * Each write through the cache is reported to the write listener, with the user's
+ * id or null after a bulk update, so other nodes can {@link #refresh(ObjectId)} or
+ * {@link #reload()} their copies.
+ */
+public class RosterCache {
+    private static final Logger logger = LoggerFactory.getLogger(RosterCache.class);
+
+    private static final FindOneAndUpdateOptions RETURN_AFTER =
+            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    private final MongoCollection<Document> usersCollection;
+    // Ordered by _id so listings keep the insertion order MongoDB would return
+    private final ConcurrentSkipListMap<ObjectId, Document> usersById = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, ObjectId> idsByUsername = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final ElectoralStrengths strengths = new ElectoralStrengths();
+    private volatile Consumer<ObjectId> writeListener = id -> { };
+
+    public RosterCache(MongoCollection<Document> usersCollection) {
+        this.usersCollection = usersCollection;
+        reload();
+    }
+
+    // Replace the whole cache with the current contents of the users collection
+    public synchronized void reload() {
+        List<Document> allUsers = usersCollection.find().into(new ArrayList<>());
+        usersById.clear();
+        idsByUsername.clear();
+        for (Document user : allUsers) {
+            index(user);
+        }
+        strengths.rebuild(allUsers);
+        version.incrementAndGet();
+        logger.info("Roster cache loaded with {} users.", allUsers.size());
+    }
+
+    public void onWrite(Consumer<ObjectId> listener) {
+        this.writeListener = listener;
+    }
+
+    // Re-read one user written elsewhere, e.g. by another node; a deleted user is dropped
+    public void refresh(ObjectId id) {
+        Document user = usersCollection.find(eq("_id", id)).first();
+        if (user != null) {
+            put(user);
+            return;
+        }
+        synchronized (this) {
+            Document previous = usersById.remove(id);
+            if (previous == null) {
+                return;
+            }
+            if (previous.getString("username") != null) {
+                idsByUsername.remove(previous.getString("username"), id);
+            }
+            strengths.rebuild(usersById.values());
+        }
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public ElectoralStrengths strengths() {
+        return strengths;
+    }
+
+    public Document getById(ObjectId id) {
+        Document user = usersById.get(id);
+        if (user == null) {
+            // Users inserted directly into MongoDB are picked up lazily
+            user = usersCollection.find(eq("_id", id)).first();
+            if (user != null) {
+                put(user);
+            }
+        }
+        return user;
+    }
+
+    public Document getByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        ObjectId id = idsByUsername.get(username);
+        if (id != null) {
+            return usersById.get(id);
+        }
+        Document user = usersCollection.find(eq("username", username)).first();
+        if (user != null) {
+            put(user);
+        }
+        return user;
+    }
+
+    public List<Document> all() {
+        return new ArrayList<>(usersById.values());
+    }
+
+    // Live, read-only view in _id order; iteration is weakly consistent and copies nothing
+    public Collection<Document> view() {
+        return Collections.unmodifiableCollection(usersById.values());
+    }
+
+    public List<Document> present() {
+        List<Document> presentUsers = new ArrayList<>();
+        for (Document user : usersById.values()) {
+            if (user.getBoolean("present", false)) {
+                presentUsers.add(user);
+            }
+        }
+        return presentUsers;
+    }
+
+    // Store a freshly written or freshly read user document, unless the cached one is newer
+    public void put(Document user) {
+        if (user == null || user.getObjectId("_id") == null) {
+            return;
+        }
+        synchronized (this) {
+            Document previous = usersById.get(user.getObjectId("_id"));
+            if (previous != null && revision(previous) > revision(user)) {
+                return;
+            }
+            if (previous != null && previous.getString("username") != null
+                    && !previous.getString("username").equals(user.getString("username"))) {
+                idsByUsername.remove(previous.getString("username"));
+            }
+            index(user);
+            strengths.update(user);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Applies an update in MongoDB and caches the resulting document.
+     * Returns the updated user, or null if no user matched the filter.
+     */
+    public Document update(Bson filter, Bson update) {
+        Document updated = usersCollection.findOneAndUpdate(filter, Updates.combine(update, Updates.inc("rev", 1L)), RETURN_AFTER);
+        if (updated != null) {
+            put(updated);
+            writeListener.accept(updated.getObjectId("_id"));
+        }
+        return updated;
+    }
+
+    public Document updateById(ObjectId id, Bson update) {
+        return update(eq("_id", id), update);
+    }
+
+    public Document updateByUsername(String username, Bson update) {
+        return update(eq("username", username), update);
+    }
+
+    // Bulk updates cannot be applied locally with certainty, so the cache is rebuilt
+    public void updateAll(Bson filter, Bson update) {
+        usersCollection.updateMany(filter, Updates.combine(update, Updates.inc("rev", 1L)));
+        reload();
+        writeListener.accept(null);
+    }
+
+    // Documents written before revisions were introduced count as revision 0
+    private static long revision(Document user) {
+        Object rev = user.get("rev");
+        return rev instanceof Number ? ((Number) rev).longValue() : 0L;
+    }
+
+    private void index(Document user) {
+        ObjectId id = user.getObjectId("_id");
+        usersById.put(id, user);
+        String username = user.getString("username");
+        if (username != null) {
+            idsByUsername.put(username, id);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,20 +9,85 @@ import org.eclipse.jetty.websocket.api.annotations.*;
 import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @WebSocket
 public class SeatWebSocket {
     private static final Logger logger = LoggerFactory.getLogger(SeatWebSocket.class);
 
-    // Thread-safe set to store all active WebSocket sessions
-    private static final CopyOnWriteArraySet<Session> sessions = new CopyOnWriteArraySet<>();
+    // Every active WebSocket session with its bounded outbound queue
+    private static final ConcurrentHashMap<Session, OutboundQueue> sessions = new ConcurrentHashMap<>();
+
+    // The sessions subscribed to each topic; added to only under the journal lock, so a
+    // new subscriber never misses a frame after its replay. Closing sessions leave without it.
+    private static final EnumMap<Topic, Set<OutboundQueue>> subscribers = new EnumMap<>(Topic.class);
+
+    static {
+        for (Topic topic : Topic.values()) {
+            subscribers.put(topic, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    // WS_QUEUE_CAPACITY frames may wait per session; WS_SEND_TIMEOUT_MS bounds a single write
+    private static final int queueCapacity = Main.parseIntEnv("WS_QUEUE_CAPACITY", OutboundQueue.DEFAULT_CAPACITY);
+    private static final long sendTimeoutMs = Main.parseIntEnv("WS_SEND_TIMEOUT_MS", (int) OutboundQueue.DEFAULT_SEND_TIMEOUT_MS);
+
+    // Closes sessions whose write is stuck even when no further broadcast reaches them
+    private static final ScheduledExecutorService sendTimeoutSweeper = startSendTimeoutSweep();
+
+    // Relays broadcasts to the clients of every node; single-node unless Main installs another bus
+    private static volatile BroadcastBus bus = startBus(new InProcessBroadcastBus());
+
+    // Cache invalidations for the other nodes; never journaled or sent to clients
+    static final String CHANGE_PREFIX = "{\"topic\":\"internal\",\"change\":";
+
+    private static final int tickMs = Main.parseIntEnv("BROADCAST_TICK_MS", BroadcastScheduler.DEFAULT_TICK_MS);
+
+    // Broadcasts of one BROADCAST_TICK_MS window go to the bus as a single frame
+    private static final BroadcastScheduler scheduler = new BroadcastScheduler(message -> bus.publish(message), tickMs);
+
+    // Frequent internal changes, such as votes, go to the other nodes once per tick as well
+    private static final BroadcastScheduler changeScheduler = new BroadcastScheduler(
+            change -> bus.publish(CHANGE_PREFIX + change + "}"), tickMs);
+
+    // The last EVENT_JOURNAL_CAPACITY frames delivered, so reconnecting clients can catch up
+    private static final EventJournal journal = new EventJournal(
+            Main.parseIntEnv("EVENT_JOURNAL_CAPACITY", EventJournal.DEFAULT_CAPACITY));
+
+    // Orders whole deliveries, so frames reach each queue in journal order
+    private static final Object fanOut = new Object();
+
+    // State every new session receives first, such as the speaking queue
+    private static volatile Supplier<String> connectSnapshot = () -> null;
+
+    // Applies what another node changed to this node's caches
+    private static volatile Consumer<String> remoteChange = message -> { };
 
     private final boolean authenticated;
+    private final String role;
+    // This session's topics; changed only under the journal lock
+    private final EnumSet<Topic> topics = EnumSet.noneOf(Topic.class);
 
-    // Constructor to accept authentication status
-    public SeatWebSocket(boolean isAuthenticated) {
+    // Constructor to accept authentication status and the member's role
+    public SeatWebSocket(boolean isAuthenticated, String role) {
         this.authenticated = isAuthenticated;
+        this.role = role;
+        for (Topic topic : Topic.DEFAULTS) {
+            if (topic.allows(role)) {
+                topics.add(topic);
+            }
+        }
     }
 
     @OnWebSocketConnect
@@ -31,7 +97,18 @@ public class SeatWebSocket {
         // Boolean isAuthenticated = (Boolean) servletUpgradeRequest.getHttpServletRequest().getAttribute("isAuthenticated");
 
         if (this.authenticated) {
-            sessions.add(session);
+            OutboundQueue queue = new OutboundQueue(session, queueCapacity, sendTimeoutMs);
+            // Registered under the journal lock, so no live frame can overtake the replay
+            synchronized (journal) {
+                resume(session, queue, topics);
+                sessions.put(session, queue);
+                for (Topic topic : topics) {
+                    subscribers.get(topic).add(queue);
+                }
+            }
+            if (topics.contains(Topic.QUEUE)) {
+                offerSnapshot(queue);
+            }
             logger.info("WebSocket Connected (Authenticated): {}", session.getRemoteAddress().getAddress());
         } else {
             logger.warn("WebSocket Connection Attempt Rejected (Unauthenticated): {}", session.getRemoteAddress().getAddress());
@@ -41,22 +118,68 @@ public class SeatWebSocket {
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
-        sessions.remove(session);
+        OutboundQueue queue = sessions.remove(session);
+        if (queue != null) {
+            for (Set<OutboundQueue> audience : subscribers.values()) {
+                audience.remove(queue);
+            }
+            queue.discard();
+        }
         logger.info("WebSocket Closed: {} Reason: {}", session.getRemoteAddress().getAddress(), reason);
     }
 
+    /**
+     * Handles {@code {"type":"subscribe"|"unsubscribe","topics":["seats",...]}}.
+     * The reply lists the session's topics after the change, and any requested
+     * topics that are unknown or not open to the member's role.
+     */
     @OnWebSocketMessage
     public void onMessage(Session session, String message) {
-        logger.info("Received message from {}: {}", session.getRemoteAddress().getAddress(), message);
-        // Echo logic removed
-        // Handle incoming messages if needed (original comment)
-        // For example, if clients could send specific commands:
-        // try {
-        //     JSONObject clientMessage = new JSONObject(message);
-        //     // process clientMessage
-        // } catch (org.json.JSONException e) {
-        //     logger.warn("Received non-JSON message or malformed JSON from client: {}", message);
-        // }
+        logger.debug("Received message from {}: {}", session.getRemoteAddress().getAddress(), message);
+        OutboundQueue queue = sessions.get(session);
+        if (queue == null) {
+            return;
+        }
+        JSONObject command = OutboundQueue.parse(message);
+        String type = command != null ? command.optString("type") : "";
+        JSONArray requested = command != null ? command.optJSONArray("topics") : null;
+        if (!("subscribe".equals(type) || "unsubscribe".equals(type)) || requested == null) {
+            logger.warn("Ignoring unknown WebSocket command from {}: {}", session.getRemoteAddress().getAddress(), message);
+            return;
+        }
+
+        boolean subscribe = "subscribe".equals(type);
+        boolean queueAdded = false;
+        JSONArray denied = new JSONArray();
+        JSONObject reply = new JSONObject();
+        synchronized (journal) {
+            for (int i = 0; i < requested.length(); i++) {
+                Topic topic = Topic.byId(requested.optString(i));
+                if (topic == null || (subscribe && !topic.allows(role))) {
+                    denied.put(requested.opt(i));
+                } else if (subscribe && topics.add(topic)) {
+                    subscribers.get(topic).add(queue);
+                    queueAdded |= topic == Topic.QUEUE;
+                } else if (!subscribe && topics.remove(topic)) {
+                    subscribers.get(topic).remove(queue);
+                }
+            }
+            JSONArray current = new JSONArray();
+            for (Topic topic : topics) {
+                current.put(topic.id());
+            }
+            reply.put("type", "subscriptions");
+            reply.put("topics", current);
+            if (denied.length() > 0) {
+                reply.put("denied", denied);
+                logger.warn("Denied WebSocket topics {} to role {}", denied, role);
+            }
+        }
+        queue.offer(OutboundQueue.Message.single(reply.toString()));
+        // Deltas only make sense on top of a snapshot
+        if (queueAdded) {
+            offerSnapshot(queue);
+        }
     }
 
     @OnWebSocketError
@@ -64,14 +187,181 @@ public class SeatWebSocket {
         logger.error("WebSocket Error on session {}: {}", session.getRemoteAddress().getAddress(), error.getMessage());
     }
 
-    // Method to broadcast a message to all connected clients
+    /**
+     * Tells the new session where the journal stands. A client reconnecting with
+     * {@code ?since=<seq>&epoch=<epoch>} gets a "resume" followed by exactly the
+     * frames it missed, or a "resync" when they are no longer all kept or come from
+     * another epoch. Only frames of the session's topics are replayed; they go ahead
+     * of live frames and outside the queue's capacity, so a long absence never
+     * forces a resync while the journal still holds everything.
+     */
+    private static void resume(Session session, OutboundQueue queue, Set<Topic> topics) {
+        String since = parameter(session, "since");
+        List<OutboundQueue.Message> missed = null;
+        if (since == null) {
+            missed = new ArrayList<>(); // A fresh page has just fetched everything
+        } else if (journal.epoch().equals(parameter(session, "epoch"))) {
+            try {
+                missed = journal.since(Long.parseLong(since));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring malformed WebSocket resume position: {}", since);
+            }
+        }
+        if (missed != null) {
+            missed.removeIf(frame -> !topics.contains(frame.topic));
+        }
+
+        JSONObject position = new JSONObject();
+        position.put("type", missed != null ? "resume" : "resync");
+        position.put("epoch", journal.epoch());
+        position.put("seq", journal.sequence());
+        List<OutboundQueue.Message> frames = new ArrayList<>(missed != null ? missed.size() + 1 : 1);
+        frames.add(OutboundQueue.Message.single(position.toString()));
+        if (missed != null) {
+            frames.addAll(missed);
+            logger.debug("Replaying {} frames after sequence {}", missed.size(), since);
+        }
+        queue.replay(frames);
+    }
+
+    private static void offerSnapshot(OutboundQueue queue) {
+        String snapshot = connectSnapshot.get();
+        if (snapshot != null) {
+            queue.offer(OutboundQueue.Message.single(snapshot));
+        }
+    }
+
+    private static String parameter(Session session, String name) {
+        List<String> values = session.getUpgradeRequest().getParameterMap().get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static ScheduledExecutorService startSendTimeoutSweep() {
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-send-timeout-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        // Half the timeout, so a stuck session is closed at most 1.5 timeouts after its write began
+        long periodMs = Math.max(100L, sendTimeoutMs / 2);
+        sweeper.scheduleWithFixedDelay(() -> {
+            for (OutboundQueue queue : sessions.values()) {
+                try {
+                    queue.expireStuckSend();
+                } catch (Exception e) {
+                    logger.warn("Error checking a WebSocket session for a stuck write: {}", e.getMessage());
+                }
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        return sweeper;
+    }
+
+    private static BroadcastBus startBus(BroadcastBus newBus) {
+        newBus.start(SeatWebSocket::deliverLocally, message -> remoteChange.accept(message));
+        return newBus;
+    }
+
+    static EventJournal journal() {
+        return journal;
+    }
+
+    public static void setConnectSnapshot(Supplier<String> snapshot) {
+        connectSnapshot = snapshot;
+    }
+
+    public static void setRemoteChangeHandler(Consumer<String> handler) {
+        remoteChange = handler;
+    }
+
+    // True when other nodes keep their own caches and have to be told about changes
+    public static boolean hasRemoteNodes() {
+        return bus.isShared();
+    }
+
+    /**
+     * Tells the other nodes about a change that has no client-visible frame, such as
+     * a roster update. Sent right away rather than with the tick, and skipped on a
+     * single node.
+     */
+    public static void publishChange(JSONObject change) {
+        BroadcastBus current = bus;
+        if (current.isShared()) {
+            current.publish(CHANGE_PREFIX + change + "}");
+        }
+    }
+
+    /**
+     * Like {@link #publishChange}, but sent with the rest of this tick; the changes of
+     * one tick reach the other nodes as a single batch.
+     */
+    public static void submitChange(JSONObject change) {
+        if (bus.isShared()) {
+            changeScheduler.submit(change.toString());
+        }
+    }
+
+    // Replace the broadcast bus, e.g. with a MongoBroadcastBus when running several nodes
+    public static void setBroadcastBus(BroadcastBus newBus) {
+        BroadcastBus previous = bus;
+        bus = startBus(newBus);
+        previous.stop();
+    }
+
+    // Method to broadcast a message to all connected clients on every node, with the rest of this tick
     public static void broadcast(String message) {
-        for (Session session : sessions) {
-            if (session.isOpen()) {
-                session.getRemote().sendStringByFuture(message);
-                logger.debug("Sent message to {}: {}", session.getRemoteAddress().getAddress(), message);
+        scheduler.submit(message);
+    }
+
+    /**
+     * Journals a message and queues it for this node's subscribers of its topic; slow
+     * clients are coalesced or dropped. The journal lock only covers the append and
+     * the audience snapshot, so connects and subscription changes never wait on the
+     * fan-out; deliveries still reach every queue in sequence order.
+     */
+    static void deliverLocally(String message) {
+        if (message.startsWith(CHANGE_PREFIX)) {
+            return;
+        }
+        synchronized (fanOut) {
+            OutboundQueue.Message frame;
+            OutboundQueue[] audience;
+            synchronized (journal) {
+                frame = journal.append(message);
+                audience = subscribers.get(frame.topic).toArray(new OutboundQueue[0]);
+            }
+            for (OutboundQueue queue : audience) {
+                queue.offer(frame);
             }
+            logger.debug("Queued message for {} sessions: {}", audience.length, message);
+        }
+    }
+
+    // Outbound queue health for this node
+    public static JSONObject metrics() {
+        int queuedFrames = 0;
+        int deepestQueue = 0;
+        int highWaterMark = 0;
+        for (OutboundQueue queue : sessions.values()) {
+            int depth = queue.depth();
+            queuedFrames += depth;
+            deepestQueue = Math.max(deepestQueue, depth);
+            highWaterMark = Math.max(highWaterMark, queue.maxDepth());
+        }
+        JSONObject metrics = OutboundQueue.metrics();
+        metrics.put("sessions", sessions.size());
+        metrics.put("queuedFrames", queuedFrames);
+        metrics.put("deepestQueue", deepestQueue);
+        metrics.put("highWaterMark", highWaterMark);
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("scheduler", scheduler.metrics());
+        metrics.put("changeScheduler", changeScheduler.metrics());
+        metrics.put("journal", journal.metrics());
+        JSONObject topicSubscribers = new JSONObject();
+        for (Map.Entry<Topic, Set<OutboundQueue>> topic : subscribers.entrySet()) {
+            topicSubscribers.put(topic.getKey().id(), topic.getValue().size());
         }
+        metrics.put("subscribers", topicSubscribers);
+        return metrics;
     }
 
     // Overloaded method to broadcast JSON objects
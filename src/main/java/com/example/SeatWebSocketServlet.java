@@ -16,10 +16,12 @@ public class SeatWebSocketServlet extends WebSocketServlet {
             public Object createWebSocket(org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest req, org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse resp) {
                 HttpSession httpSession = (HttpSession) req.getHttpServletRequest().getSession(false);
                 boolean isAuthenticated = false;
+                String role = null;
                 if (httpSession != null && httpSession.getAttribute("username") != null) {
                     isAuthenticated = true;
+                    role = (String) httpSession.getAttribute("role");
                 }
-                return new SeatWebSocket(isAuthenticated);
+                return new SeatWebSocket(isAuthenticated, role);
             }
         });
     }
@@ -0,0 +1,439 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+
+/**
+ * Write-through, in-memory parliament queue.
+ * <p>
+ * The live items (pending or active) are kept ordered by priority, then timestamp,
+ * and indexed by id, by the active item and by (type, user) for pending items, so
+ * every change costs O(log n) and reads never touch MongoDB. Each mutation writes
+ * MongoDB first and then updates memory; the monitor is only held for the memory
+ * update, so readers never wait on MongoDB. Like the roster cache, cached documents
+ * are never modified in place: a change puts a new copy.
+ * <p>
+ * Every mutation is broadcast as one {@code queueDelta} of insert, move and remove
+ * operations, stamped with the next sequence number. A client applies deltas in
+ * sequence on top of a snapshot and fetches a new snapshot when it sees a gap.
+ */
+public class SpeakingQueue {
+    private static final Logger logger = LoggerFactory.getLogger(SpeakingQueue.class);
+
+    private static final FindOneAndUpdateOptions UPSERT_RETURN_AFTER =
+            new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER);
+
+    // Priority first, then arrival; the id keeps items with equal timestamps distinct
+    static final Comparator<Document> ORDER = Comparator
+            .comparingInt((Document item) -> item.get("priority") instanceof Number ? ((Number) item.get("priority")).intValue() : Integer.MAX_VALUE)
+            .thenComparing(item -> item.getDate("timestamp"), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(item -> item.getObjectId("_id"));
+
+    private final MongoCollection<Document> collection;
+    private final ResourceVersions versions;
+    private final Consumer<String> broadcast;
+
+    private static final String PROPOSAL_DISCUSSION = "PROPOSAL_DISCUSSION";
+
+    // Guards the state below; held only for memory updates, never across a MongoDB call
+    private final TreeSet<Document> ordered = new TreeSet<>(ORDER);
+    private final Map<ObjectId, Document> byId = new HashMap<>();
+    // The active items, normally at most one
+    private final Map<ObjectId, Document> active = new HashMap<>();
+    // Pending items by type, then by user (null for proposal discussions), in queue order
+    private final Map<String, Map<ObjectId, TreeSet<Document>>> pending = new HashMap<>();
+    private long sequence = 0;
+
+    // Serialises mutations, so memory applies them in the order MongoDB did. A lock
+    // rather than a monitor, so a virtual thread waiting on MongoDB here is not pinned.
+    private final ReentrantLock writes = new ReentrantLock();
+
+    /** A consistent copy of the live queue and the sequence it was taken at. */
+    public static final class Snapshot {
+        public final long sequence;
+        public final JSONArray queue;
+
+        Snapshot(long sequence, JSONArray queue) {
+            this.sequence = sequence;
+            this.queue = queue;
+        }
+    }
+
+    // The operations of one mutation, broadcast together
+    private static final class Delta {
+        final JSONArray ops = new JSONArray();
+
+        void insert(Document item) {
+            ops.put(new JSONObject().put("op", "insert").put("item", toJson(item)));
+        }
+
+        void move(Document item) {
+            ops.put(new JSONObject().put("op", "move").put("item", toJson(item)));
+        }
+
+        void remove(Document item) {
+            ops.put(new JSONObject().put("op", "remove").put("id", item.getObjectId("_id").toHexString()));
+        }
+    }
+
+    public SpeakingQueue(MongoCollection<Document> collection, ResourceVersions versions, Consumer<String> broadcast) {
+        this.collection = collection;
+        this.versions = versions;
+        this.broadcast = broadcast;
+    }
+
+    /** Loads the live items from MongoDB, replacing whatever is in memory. */
+    public void load() {
+        writes.lock();
+        try {
+            List<Document> live = collection.find(in("status", "pending", "active")).into(new ArrayList<>());
+            synchronized (this) {
+                ordered.clear();
+                byId.clear();
+                active.clear();
+                pending.clear();
+                for (Document item : live) {
+                    index(item);
+                }
+                sequence++;
+            }
+            logger.info("Speaking queue loaded with {} items.", live.size());
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        JSONArray queue = new JSONArray();
+        for (Document item : ordered) {
+            queue.put(toJson(item));
+        }
+        return new Snapshot(sequence, queue);
+    }
+
+    public synchronized int size() {
+        return ordered.size();
+    }
+
+    /** The live item with this id, or null if it is unknown, completed or deleted. */
+    public synchronized Document get(ObjectId id) {
+        return byId.get(id);
+    }
+
+    /** The user's first pending item of any of the given types, or null. */
+    public synchronized Document findPending(ObjectId userId, String... types) {
+        Document first = null;
+        for (String type : types) {
+            Map<ObjectId, TreeSet<Document>> byUser = pending.get(type);
+            TreeSet<Document> items = byUser != null ? byUser.get(userId) : null;
+            if (items != null && (first == null || ORDER.compare(items.first(), first) < 0)) {
+                first = items.first();
+            }
+        }
+        return first;
+    }
+
+    /** Inserts a new item; it is given an _id if it has none. */
+    public Document insert(Document item) {
+        if (item.getObjectId("_id") == null) {
+            item.put("_id", new ObjectId());
+        }
+        writes.lock();
+        try {
+            collection.insertOne(item);
+            synchronized (this) {
+                Delta delta = new Delta();
+                index(item);
+                delta.insert(item);
+                publish(delta);
+            }
+            return item;
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    /**
+     * Makes the user's item of this type pending again with a fresh timestamp and
+     * priority, reusing the stored document if there is one, and inserting it otherwise.
+     */
+    public Document upsertPending(ObjectId userId, String type, String username, int priority) {
+        Document update = new Document("$set", new Document("username", username)
+                .append("timestamp", new Date())
+                .append("priority", priority)
+                .append("status", "pending"))
+                .append("$setOnInsert", new Document("userId", userId).append("type", type));
+        writes.lock();
+        try {
+            Document item = collection.findOneAndUpdate(and(eq("userId", userId), eq("type", type)), update, UPSERT_RETURN_AFTER);
+            if (item == null) {
+                return null;
+            }
+            synchronized (this) {
+                Delta delta = new Delta();
+                if (unindex(item.getObjectId("_id")) != null) {
+                    delta.move(item);
+                } else {
+                    delta.insert(item);
+                }
+                index(item);
+                publish(delta);
+            }
+            return item;
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    /** Deletes the user's pending items of this type. */
+    public int deletePending(ObjectId userId, String type) {
+        Bson filter = and(eq("userId", userId), eq("type", type), eq("status", "pending"));
+        writes.lock();
+        try {
+            collection.deleteMany(filter);
+            return removeMatching(userId, type);
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    /** Marks the user's pending items of this type completed. */
+    public int completePending(ObjectId userId, String type) {
+        Bson filter = and(eq("userId", userId), eq("type", type), eq("status", "pending"));
+        writes.lock();
+        try {
+            collection.updateMany(filter, completedUpdate());
+            return removeMatching(userId, type);
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    /**
+     * Makes this item the only active one; the previously active item goes back to
+     * pending. Items that are no longer live are revived from MongoDB. Returns null
+     * if no such item exists.
+     */
+    public Document setActive(ObjectId id) {
+        writes.lock();
+        try {
+            Document live = get(id);
+            Document stored = live == null ? collection.find(eq("_id", id)).first() : null;
+            if (live == null && stored == null) {
+                return null;
+            }
+            collection.updateMany(eq("status", "active"), new Document("$set", new Document("status", "pending")));
+            collection.updateOne(eq("_id", id), new Document("$set", new Document("status", "active")));
+
+            synchronized (this) {
+                Delta delta = new Delta();
+                for (Document item : new ArrayList<>(active.values())) {
+                    if (!item.getObjectId("_id").equals(id)) {
+                        delta.move(replace(item, "pending"));
+                    }
+                }
+                Document target = byId.get(id);
+                Document promoted;
+                if (target != null) {
+                    promoted = replace(target, "active");
+                    delta.move(promoted);
+                } else {
+                    promoted = stored;
+                    promoted.put("status", "active");
+                    index(promoted);
+                    delta.insert(promoted);
+                }
+                publish(delta);
+                return promoted;
+            }
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    /** Completes this item if it is the active one; returns it, or null if it was not active. */
+    public Document completeActive(ObjectId id) {
+        writes.lock();
+        try {
+            Document item;
+            synchronized (this) {
+                item = active.get(id);
+            }
+            if (item == null) {
+                return null;
+            }
+            collection.updateOne(eq("_id", id), completedUpdate());
+            synchronized (this) {
+                unindex(id);
+                Delta delta = new Delta();
+                delta.remove(item);
+                publish(delta);
+            }
+            return item;
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    /** Replaces every pending proposal discussion with the given new items. */
+    public void replaceProposalDiscussions(List<Document> items) {
+        for (Document item : items) {
+            if (item.getObjectId("_id") == null) {
+                item.put("_id", new ObjectId());
+            }
+        }
+        writes.lock();
+        try {
+            collection.deleteMany(and(eq("type", PROPOSAL_DISCUSSION), eq("status", "pending")));
+            if (!items.isEmpty()) {
+                collection.insertMany(items);
+            }
+
+            synchronized (this) {
+                Delta delta = new Delta();
+                Map<ObjectId, TreeSet<Document>> discussions = pending.get(PROPOSAL_DISCUSSION);
+                if (discussions != null) {
+                    for (TreeSet<Document> owned : new ArrayList<>(discussions.values())) {
+                        for (Document item : new ArrayList<>(owned)) {
+                            unindex(item.getObjectId("_id"));
+                            delta.remove(item);
+                        }
+                    }
+                }
+                for (Document item : items) {
+                    index(item);
+                    delta.insert(item);
+                }
+                publish(delta);
+            }
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    private synchronized int removeMatching(ObjectId userId, String type) {
+        Map<ObjectId, TreeSet<Document>> byUser = pending.get(type);
+        TreeSet<Document> items = byUser != null ? byUser.get(userId) : null;
+        if (items == null) {
+            return 0;
+        }
+        Delta delta = new Delta();
+        List<Document> removed = new ArrayList<>(items);
+        for (Document item : removed) {
+            unindex(item.getObjectId("_id"));
+            delta.remove(item);
+        }
+        publish(delta);
+        return removed.size();
+    }
+
+    // Puts a copy with the new status in place of the cached item
+    private Document replace(Document item, String status) {
+        unindex(item.getObjectId("_id"));
+        Document copy = new Document(item);
+        copy.put("status", status);
+        index(copy);
+        return copy;
+    }
+
+    // Called with the lock held
+    private void index(Document item) {
+        ObjectId id = item.getObjectId("_id");
+        byId.put(id, item);
+        ordered.add(item);
+        String status = item.getString("status");
+        if ("active".equals(status)) {
+            active.put(id, item);
+        } else if ("pending".equals(status)) {
+            pending.computeIfAbsent(item.getString("type"), type -> new HashMap<>())
+                    .computeIfAbsent(item.getObjectId("userId"), userId -> new TreeSet<>(ORDER))
+                    .add(item);
+        }
+    }
+
+    // Called with the lock held
+    private Document unindex(ObjectId id) {
+        Document previous = byId.remove(id);
+        if (previous == null) {
+            return null;
+        }
+        ordered.remove(previous);
+        active.remove(id);
+        Map<ObjectId, TreeSet<Document>> byUser = pending.get(previous.getString("type"));
+        TreeSet<Document> owned = byUser != null ? byUser.get(previous.getObjectId("userId")) : null;
+        if (owned != null && owned.remove(previous) && owned.isEmpty()) {
+            byUser.remove(previous.getObjectId("userId"));
+            if (byUser.isEmpty()) {
+                pending.remove(previous.getString("type"));
+            }
+        }
+        return previous;
+    }
+
+    private static Document completedUpdate() {
+        return new Document("$set", new Document("status", "completed").append("completedTimestamp", new Date()));
+    }
+
+    // Called with the lock held, so deltas leave in sequence order
+    private void publish(Delta delta) {
+        if (delta.ops.length() == 0) {
+            return;
+        }
+        sequence++;
+        JSONObject message = new JSONObject();
+        message.put("type", "queueDelta");
+        message.put("version", versions.stamp(sequence));
+        message.put("ops", delta.ops);
+        broadcast.accept(message.toString());
+    }
+
+    /** The client view of one queue item. */
+    static JSONObject toJson(Document item) {
+        JSONObject json = new JSONObject();
+        json.put("id", item.getObjectId("_id").toHexString());
+        json.put("type", item.getString("type"));
+        json.put("status", item.getString("status"));
+        json.put("priority", item.get("priority"));
+        Date timestamp = item.getDate("timestamp");
+        json.put("timestamp", timestamp != null ? timestamp.toInstant().toString() : "");
+
+        // Type-specific fields; client-side code is responsible for HTML escaping
+        String type = item.getString("type");
+        if ("PROPOSAL_DISCUSSION".equals(type)) {
+            if (item.getObjectId("proposalId") != null) {
+                json.put("proposalId", item.getObjectId("proposalId").toHexString());
+            }
+            json.put("proposalTitle", item.getString("proposalTitle"));
+            json.put("proposalVisual", item.getString("proposalVisual"));
+        } else if ("SPEAKER_REQUEST".equals(type) || "OBJECTION".equals(type)) {
+            if (item.getObjectId("userId") != null) {
+                json.put("userId", item.getObjectId("userId").toHexString());
+            }
+            json.put("username", item.getString("username"));
+            json.put("requestType", "OBJECTION".equals(type) ? "OBJECTING" : item.getString("requestType"));
+        }
+        return json;
+    }
+}
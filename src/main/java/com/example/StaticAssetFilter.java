@@ -0,0 +1,241 @@
+package com.example;
+
+import org.eclipse.jetty.util.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-hash fingerprinting for the embedded webapp.
+ * <p>
+ * At startup every asset gets a versioned URL such as {@code /app.1f3a9c0b2e.js}, and
+ * the HTML pages are rewritten to reference those URLs and kept in memory, plain and
+ * gzipped. Versioned URLs are served by DefaultServlet with
+ * {@code Cache-Control: immutable}, so browsers never ask for them again. Pages are
+ * sent with {@code no-cache} and a content ETag, so a reload costs one 304; the
+ * gzipped variant's ETag carries a {@code --gzip} suffix, as with Jetty's GzipHandler.
+ * <p>
+ * Only used for resources that cannot change while the server runs, i.e. the
+ * classpath copy of the webapp.
+ */
+public class StaticAssetFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssetFilter.class);
+
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    static final String REVALIDATE = "no-cache";
+
+    private static final Pattern ASSET_REFERENCE = Pattern.compile("(src|href)=\"(?:\\./|/)?([^\"/:?#][^\":?#]*)\"");
+    private static final int HASH_LENGTH = 10;
+    private static final String GZIP_ETAG_SUFFIX = "--gzip";
+
+    // Versioned path -> original path, both starting with "/"
+    private final Map<String, String> originalByVersioned = new HashMap<>();
+    private final Map<String, String> versionedByOriginal = new HashMap<>();
+    private final Map<String, Page> pages = new HashMap<>();
+
+    private static final class Page {
+        final byte[] plain;
+        final byte[] gzipped;
+        final String etag;
+        final String gzippedEtag;
+
+        Page(byte[] plain, byte[] gzipped, String hash) {
+            this.plain = plain;
+            this.gzipped = gzipped;
+            this.etag = "\"h-" + hash + "\"";
+            this.gzippedEtag = "\"h-" + hash + GZIP_ETAG_SUFFIX + "\"";
+        }
+    }
+
+    public StaticAssetFilter(Resource base) throws IOException {
+        Map<String, Resource> htmlResources = new HashMap<>();
+        scan(base, "/", htmlResources);
+        for (Map.Entry<String, Resource> html : htmlResources.entrySet()) {
+            pages.put(html.getKey(), renderPage(html.getValue()));
+        }
+        logger.info("Fingerprinted {} static assets and cached {} pages.", versionedByOriginal.size(), pages.size());
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Everything is prepared in the constructor
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.isEmpty() || path.equals("/")) {
+            path = "/index.html";
+        }
+
+        Page page = pages.get(path);
+        if (page != null) {
+            writePage(request, response, page, "HEAD".equals(method));
+            return;
+        }
+
+        String original = originalByVersioned.get(path);
+        if (original != null) {
+            // DefaultServlet does the rest: memory cache, precompressed variants, ranges
+            response.setHeader("Cache-Control", IMMUTABLE);
+            request.getRequestDispatcher(original).forward(request, response);
+            return;
+        }
+
+        if (versionedByOriginal.containsKey(path)) {
+            // Unversioned URL of a versioned asset, e.g. a bookmarked script
+            response.setHeader("Cache-Control", REVALIDATE);
+        }
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+
+    private void writePage(HttpServletRequest request, HttpServletResponse response, Page page, boolean headOnly) throws IOException {
+        boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+        response.setHeader("ETag", gzip ? page.gzippedEtag : page.etag);
+        response.setHeader("Cache-Control", REVALIDATE);
+        response.setHeader("Vary", "Accept-Encoding");
+        // Either variant's tag is still current, whichever encoding the client asks for now
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ResourceVersions.matches(ifNoneMatch, page.etag) || ResourceVersions.matches(ifNoneMatch, page.gzippedEtag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] body = page.plain;
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            body = page.gzipped;
+        }
+        response.setContentType("text/html;charset=utf-8");
+        response.setContentLength(body.length);
+        if (!headOnly) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private void scan(Resource directory, String prefix, Map<String, Resource> htmlResources) throws IOException {
+        String[] names = directory.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            Resource child = directory.addPath(name);
+            if (child.isDirectory()) {
+                scan(child, prefix + name, htmlResources);
+            } else if (name.endsWith(".html")) {
+                htmlResources.put(prefix + name, child);
+            } else if (!name.endsWith(".gz") && !name.endsWith(".br")) {
+                String original = prefix + name;
+                String versioned = fingerprint(original, hash(read(child)));
+                versionedByOriginal.put(original, versioned);
+                originalByVersioned.put(versioned, original);
+            }
+        }
+    }
+
+    private Page renderPage(Resource resource) throws IOException {
+        String html = new String(read(resource), StandardCharsets.UTF_8);
+        Matcher matcher = ASSET_REFERENCE.matcher(html);
+        StringBuffer rewritten = new StringBuffer(html.length() + 64);
+        while (matcher.find()) {
+            String versioned = versionedByOriginal.get("/" + matcher.group(2));
+            String replacement = versioned != null ? matcher.group(1) + "=\"" + versioned + "\"" : matcher.group();
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(rewritten);
+
+        byte[] plain = rewritten.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(plain.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(plain);
+        }
+        return new Page(plain, gzipped.toByteArray(), hash(plain));
+    }
+
+    // gzip is acceptable when listed, or covered by "*", with a q value above 0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0.0;
+        return quality > 0.0;
+    }
+
+    // app.js -> app.<hash>.js; names without an extension get the hash appended
+    static String fingerprint(String path, String hash) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot <= slash + 1) {
+            return path + "." + hash;
+        }
+        return path.substring(0, dot) + "." + hash + path.substring(dot);
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(HASH_LENGTH);
+            for (int i = 0; hex.length() < HASH_LENGTH; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
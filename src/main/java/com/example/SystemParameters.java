@@ -0,0 +1,127 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process holder for the values kept in the systemParameters collection
+ * (break status and meeting number).
+ * <p>
+ * Values are loaded once and then served from memory. Setters write to MongoDB
+ * first and update the in-memory value afterwards. Edits made directly in MongoDB
+ * are picked up by {@link #refresh()}, which can also run periodically when
+ * SYSTEM_PARAMS_REFRESH_SECONDS is set.
+ */
+public class SystemParameters {
+    private static final Logger logger = LoggerFactory.getLogger(SystemParameters.class);
+
+    private static final String BREAK_STATUS = "breakStatus";
+    private static final String MEETING_NUMBER = "meetingNumber";
+
+    private final MongoCollection<Document> systemParametersCollection;
+    private final AtomicBoolean breakActive = new AtomicBoolean(false);
+    private final AtomicInteger meetingNumber = new AtomicInteger(1);
+    private ScheduledExecutorService refresher;
+
+    public SystemParameters(MongoCollection<Document> systemParametersCollection) {
+        this.systemParametersCollection = systemParametersCollection;
+        initializeMissing();
+        refresh();
+        startPeriodicRefresh();
+    }
+
+    // Ensure break status and meeting number exist in the collection
+    private void initializeMissing() {
+        if (systemParametersCollection.find(Filters.eq("parameter", BREAK_STATUS)).first() == null) {
+            systemParametersCollection.insertOne(new Document("parameter", BREAK_STATUS).append("value", false));
+        }
+        if (systemParametersCollection.find(Filters.eq("parameter", MEETING_NUMBER)).first() == null) {
+            systemParametersCollection.insertOne(new Document("parameter", MEETING_NUMBER).append("value", 1));
+        }
+    }
+
+    // Re-read all parameters from MongoDB
+    public void refresh() {
+        Document breakStatus = systemParametersCollection.find(Filters.eq("parameter", BREAK_STATUS)).first();
+        breakActive.set(breakStatus != null && breakStatus.getBoolean("value", false));
+
+        Document meetingDoc = systemParametersCollection.find(Filters.eq("parameter", MEETING_NUMBER)).first();
+        meetingNumber.set(meetingDoc != null ? meetingDoc.getInteger("value", 1) : 1);
+        logger.debug("System parameters refreshed: breakActive={}, meetingNumber={}", breakActive.get(), meetingNumber.get());
+    }
+
+    private void startPeriodicRefresh() {
+        String interval = System.getenv("SYSTEM_PARAMS_REFRESH_SECONDS");
+        if (interval == null || interval.isEmpty()) {
+            return;
+        }
+        try {
+            long seconds = Long.parseLong(interval.trim());
+            if (seconds <= 0) {
+                return;
+            }
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "system-parameters-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(() -> {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    logger.error("Error refreshing system parameters: ", e);
+                }
+            }, seconds, seconds, TimeUnit.SECONDS);
+            logger.info("System parameters will be refreshed from MongoDB every {} seconds.", seconds);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid SYSTEM_PARAMS_REFRESH_SECONDS value '{}'. Periodic refresh disabled.", interval);
+        }
+    }
+
+    public boolean isBreakActive() {
+        return breakActive.get();
+    }
+
+    public void setBreakActive(boolean status) {
+        systemParametersCollection.updateOne(
+                Filters.eq("parameter", BREAK_STATUS),
+                new Document("$set", new Document("value", status))
+        );
+        breakActive.set(status);
+    }
+
+    public int getMeetingNumber() {
+        return meetingNumber.get();
+    }
+
+    public int incrementMeetingNumber() {
+        Document updated = systemParametersCollection.findOneAndUpdate(
+                Filters.eq("parameter", MEETING_NUMBER),
+                new Document("$inc", new Document("value", 1)),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER)
+        );
+        if (updated != null) {
+            meetingNumber.set(updated.getInteger("value", meetingNumber.get() + 1));
+        } else {
+            meetingNumber.incrementAndGet();
+        }
+        return meetingNumber.get();
+    }
+
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
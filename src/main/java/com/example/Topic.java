@@ -0,0 +1,83 @@
+package com.example;
+
+import org.json.JSONObject;
+
+import java.util.EnumSet;
+
+/**
+ * WebSocket broadcast topics. A session only receives frames of the topics it
+ * is subscribed to; some topics are only open to one role.
+ */
+public enum Topic {
+    SEATS("seats", null),
+    QUEUE("queue", null),
+    PROPOSALS("proposals", null),
+    // The moderation view of submitted proposals
+    PENDING("pending", "PRESIDENT"),
+    FINES("fines", null),
+    SYSTEM("system", null);
+
+    // What a session receives until it subscribes or unsubscribes: everything but moderation
+    static final EnumSet<Topic> DEFAULTS = EnumSet.of(SEATS, QUEUE, PROPOSALS, FINES, SYSTEM);
+
+    private final String id;
+    private final String requiredRole;
+
+    Topic(String id, String requiredRole) {
+        this.id = id;
+        this.requiredRole = requiredRole;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public boolean allows(String role) {
+        return requiredRole == null || requiredRole.equals(role);
+    }
+
+    /** The topic with this id, or null. */
+    public static Topic byId(String id) {
+        for (Topic topic : values()) {
+            if (topic.id.equals(id)) {
+                return topic;
+            }
+        }
+        return null;
+    }
+
+    /** The topic of a broadcast frame; batches name theirs, anything unrecognised is SYSTEM. */
+    static Topic of(JSONObject frame) {
+        if (frame == null) {
+            return SYSTEM;
+        }
+        String type = frame.optString("type");
+        if ("batch".equals(type)) {
+            Topic topic = byId(frame.optString("topic"));
+            return topic != null ? topic : SYSTEM;
+        }
+        return ofType(type);
+    }
+
+    static Topic ofType(String type) {
+        switch (type) {
+            case "seatUpdate":
+            case "seatStatusChange":
+                return SEATS;
+            case "queueUpdate":
+            case "queueDelta":
+                return QUEUE;
+            case "proposalUpdate":
+            case "proposalDelete":
+            case "proposalsUpdated":
+                return PROPOSALS;
+            case "pendingProposalNew":
+            case "pendingProposalStatusUpdate":
+                return PENDING;
+            case "fineImposed":
+                return FINES;
+            default:
+                return SYSTEM;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example;
+
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty thread pool that runs every task on a fresh virtual thread.
+ * <p>
+ * Virtual threads need JDK 21+, while the project still compiles for Java 11, so the
+ * executor is created reflectively and {@link #createIfSupported()} returns null on
+ * older runtimes. Blocking MongoDB and HttpURLConnection calls then only park a
+ * virtual thread instead of holding one of a bounded set of platform threads.
+ */
+public class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPool.class);
+
+    private final ExecutorService executor;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    private VirtualThreadPool(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /** Returns a pool backed by virtual threads, or null if this JDK does not have them. */
+    public static VirtualThreadPool createIfSupported() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "jetty-vt-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return new VirtualThreadPool((ExecutorService) perTask.invoke(null, factory));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.debug("Virtual threads unavailable on Java {}: {}", System.getProperty("java.version"), e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            activeTasks.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                activeTasks.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while (!executor.awaitTermination(1, TimeUnit.DAYS)) {
+            // keep waiting until the pool is stopped
+        }
+    }
+
+    // Tasks currently running; virtual threads are not pooled, so none are ever idle
+    @Override
+    public int getThreads() {
+        return activeTasks.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(getStopTimeout() > 0 ? getStopTimeout() : 5000, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+        super.doStop();
+    }
+}
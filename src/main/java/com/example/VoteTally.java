@@ -0,0 +1,271 @@
+package com.example;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live, in-memory vote tally for every open proposal.
+ * <p>
+ * Members are mapped to compact integer slots; each proposal keeps one choice byte
+ * and one timestamp per slot plus running For/Against totals in adjusted electoral
+ * strength. Recording or changing a vote adjusts the totals in O(1). When adjusted
+ * strengths change, {@link #setStrengths(Map)} rebases every open tally, so closing
+ * a proposal only reads the counters. Choices other than For, Against and Abstain,
+ * which only legacy documents can hold, count towards neither total but are kept
+ * in the per-vote detail as stored.
+ * <p>
+ * Votes are only recorded for proposals whose tally was loaded, so a late vote
+ * arriving after a proposal closed cannot bring its tally back.
+ * <p>
+ * All methods are synchronized; vote traffic is low enough that a single monitor
+ * is cheaper than anything finer grained.
+ */
+public class VoteTally {
+
+    private static final byte NO_VOTE = 0;
+    private static final byte FOR = 1;
+    private static final byte AGAINST = 2;
+    private static final byte ABSTAIN = 3;
+    private static final byte OTHER = 4;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Member index: userId <-> slot
+    private final Map<ObjectId, Integer> slotsByUser = new HashMap<>();
+    private ObjectId[] usersBySlot = new ObjectId[INITIAL_CAPACITY];
+    private String[] usernamesBySlot = new String[INITIAL_CAPACITY];
+    private int[] strengthBySlot = new int[INITIAL_CAPACITY];
+    private int memberCount = 0;
+
+    // Adjusted strengths keyed by hex user id, as produced by computeAdjustedElectoralStrengths
+    private Map<String, Integer> strengths = Collections.emptyMap();
+
+    private final Map<ObjectId, ProposalTally> tallies = new HashMap<>();
+
+    private static final class ProposalTally {
+        byte[] choices = new byte[INITIAL_CAPACITY];
+        long[] timestamps = new long[INITIAL_CAPACITY];
+        int totalFor;
+        int totalAgainst;
+        int supporters;
+        // Raw choice by slot for OTHER votes; rare, so created on first use
+        Map<Integer, String> otherChoices;
+
+        void ensureCapacity(int size) {
+            if (size > choices.length) {
+                int newLength = Math.max(size, choices.length * 2);
+                choices = Arrays.copyOf(choices, newLength);
+                timestamps = Arrays.copyOf(timestamps, newLength);
+            }
+        }
+    }
+
+    /** A single member's vote as seen at close time. */
+    public static final class VoteEntry {
+        public final ObjectId userId;
+        public final String username;
+        public final String voteChoice;
+        public final int electoralStrength;
+        public final Date timestamp;
+
+        VoteEntry(ObjectId userId, String username, String voteChoice, int electoralStrength, Date timestamp) {
+            this.userId = userId;
+            this.username = username;
+            this.voteChoice = voteChoice;
+            this.electoralStrength = electoralStrength;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /** Snapshot of a proposal's running totals. */
+    public static final class Result {
+        public final int totalFor;
+        public final int totalAgainst;
+        public final int supporters;
+        public final List<VoteEntry> votes;
+
+        Result(int totalFor, int totalAgainst, int supporters, List<VoteEntry> votes) {
+            this.totalFor = totalFor;
+            this.totalAgainst = totalAgainst;
+            this.supporters = supporters;
+            this.votes = votes;
+        }
+    }
+
+    public synchronized boolean isTracked(ObjectId proposalId) {
+        return tallies.containsKey(proposalId);
+    }
+
+    /**
+     * Replaces the tally for a proposal with the given vote documents
+     * (as stored in the votes collection).
+     */
+    public synchronized void load(ObjectId proposalId, Iterable<Document> votes) {
+        ProposalTally tally = new ProposalTally();
+        tallies.put(proposalId, tally);
+        for (Document vote : votes) {
+            apply(tally, vote.getObjectId("userId"), vote.getString("username"),
+                    vote.getString("voteChoice"), vote.getDate("timestamp"));
+        }
+    }
+
+    /**
+     * Like {@link #load}, but keeps an existing tally. Used for lazy loading, where
+     * the votes were read outside the lock and may already be stale.
+     */
+    public synchronized void loadIfAbsent(ObjectId proposalId, Iterable<Document> votes) {
+        if (!tallies.containsKey(proposalId)) {
+            load(proposalId, votes);
+        }
+    }
+
+    /**
+     * Records a new or changed vote; re-recording the same vote is a no-op.
+     * Returns false, recording nothing, if the proposal's tally is not loaded.
+     */
+    public synchronized boolean recordVote(ObjectId proposalId, ObjectId userId, String username, String voteChoice, Date timestamp) {
+        ProposalTally tally = tallies.get(proposalId);
+        if (tally == null) {
+            return false;
+        }
+        apply(tally, userId, username, voteChoice, timestamp);
+        return true;
+    }
+
+    public synchronized void remove(ObjectId proposalId) {
+        tallies.remove(proposalId);
+    }
+
+    /**
+     * Sets the adjusted electoral strength used for every member (absent from the
+     * map means 0) and recomputes the totals of all open tallies.
+     */
+    public synchronized void setStrengths(Map<String, Integer> adjustedByUserId) {
+        strengths = new HashMap<>(adjustedByUserId);
+        for (int slot = 0; slot < memberCount; slot++) {
+            strengthBySlot[slot] = strengths.getOrDefault(usersBySlot[slot].toHexString(), 0);
+        }
+        for (ProposalTally tally : tallies.values()) {
+            tally.totalFor = 0;
+            tally.totalAgainst = 0;
+            for (int slot = 0; slot < memberCount && slot < tally.choices.length; slot++) {
+                if (tally.choices[slot] == FOR) {
+                    tally.totalFor += strengthBySlot[slot];
+                } else if (tally.choices[slot] == AGAINST) {
+                    tally.totalAgainst += strengthBySlot[slot];
+                }
+            }
+        }
+    }
+
+    public synchronized Result result(ObjectId proposalId) {
+        ProposalTally tally = tallies.get(proposalId);
+        if (tally == null) {
+            return new Result(0, 0, 0, Collections.emptyList());
+        }
+        List<VoteEntry> votes = new ArrayList<>();
+        for (int slot = 0; slot < memberCount && slot < tally.choices.length; slot++) {
+            byte choice = tally.choices[slot];
+            if (choice == NO_VOTE) {
+                continue;
+            }
+            Date timestamp = tally.timestamps[slot] != 0 ? new Date(tally.timestamps[slot]) : null;
+            String choiceName = choice == OTHER ? tally.otherChoices.get(slot) : choiceName(choice);
+            votes.add(new VoteEntry(usersBySlot[slot], usernamesBySlot[slot], choiceName,
+                    strengthBySlot[slot], timestamp));
+        }
+        return new Result(tally.totalFor, tally.totalAgainst, tally.supporters, votes);
+    }
+
+    private void apply(ProposalTally tally, ObjectId userId, String username, String voteChoice, Date timestamp) {
+        byte choice = choiceCode(voteChoice);
+        if (userId == null || choice == NO_VOTE) {
+            return;
+        }
+        int slot = slotFor(userId, username);
+        tally.ensureCapacity(slot + 1);
+
+        int strength = strengthBySlot[slot];
+        byte previous = tally.choices[slot];
+        if (previous == FOR) {
+            tally.totalFor -= strength;
+            tally.supporters--;
+        } else if (previous == AGAINST) {
+            tally.totalAgainst -= strength;
+        }
+
+        if (previous == OTHER) {
+            tally.otherChoices.remove(slot);
+        }
+
+        tally.choices[slot] = choice;
+        tally.timestamps[slot] = timestamp != null ? timestamp.getTime() : 0L;
+        if (choice == OTHER) {
+            if (tally.otherChoices == null) {
+                tally.otherChoices = new HashMap<>();
+            }
+            tally.otherChoices.put(slot, voteChoice);
+        }
+        if (choice == FOR) {
+            tally.totalFor += strength;
+            tally.supporters++;
+        } else if (choice == AGAINST) {
+            tally.totalAgainst += strength;
+        }
+    }
+
+    private int slotFor(ObjectId userId, String username) {
+        Integer existing = slotsByUser.get(userId);
+        if (existing != null) {
+            if (username != null) {
+                usernamesBySlot[existing] = username;
+            }
+            return existing;
+        }
+        if (memberCount == usersBySlot.length) {
+            int newLength = usersBySlot.length * 2;
+            usersBySlot = Arrays.copyOf(usersBySlot, newLength);
+            usernamesBySlot = Arrays.copyOf(usernamesBySlot, newLength);
+            strengthBySlot = Arrays.copyOf(strengthBySlot, newLength);
+        }
+        int slot = memberCount++;
+        slotsByUser.put(userId, slot);
+        usersBySlot[slot] = userId;
+        usernamesBySlot[slot] = username;
+        strengthBySlot[slot] = strengths.getOrDefault(userId.toHexString(), 0);
+        return slot;
+    }
+
+    // Vote choices are compared case-insensitively, matching the original tally
+    private static byte choiceCode(String voteChoice) {
+        if ("For".equalsIgnoreCase(voteChoice)) {
+            return FOR;
+        } else if ("Against".equalsIgnoreCase(voteChoice)) {
+            return AGAINST;
+        } else if ("Abstain".equalsIgnoreCase(voteChoice)) {
+            return ABSTAIN;
+        } else if (voteChoice != null) {
+            return OTHER;
+        }
+        return NO_VOTE;
+    }
+
+    private static String choiceName(byte choice) {
+        switch (choice) {
+            case FOR:
+                return "For";
+            case AGAINST:
+                return "Against";
+            default:
+                return "Abstain";
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ingestion stage for vote upserts.
+ * <p>
+ * With VOTE_WRITE_BEHIND=true a vote is appended to a local journal file and
+ * fsynced before the request is acknowledged. Repeated votes by the same member
+ * on the same proposal are coalesced in memory, and a background thread writes
+ * the latest vote per member and proposal to MongoDB in a single bulkWrite every
+ * VOTE_FLUSH_INTERVAL_MS (default 200).
+ * <p>
+ * Each flush seals the journal as a numbered segment ({@code vote-journal.log.7})
+ * and starts a new one before it takes its batch; the segment is deleted once the
+ * batch has reached MongoDB, so the journal stays small under steady voting. A
+ * failed flush is logged and retried on the next interval, with its votes still in
+ * memory and on disk. Sealed segments and the journal are replayed on startup.
+ * <p>
+ * Without the switch every vote is upserted synchronously, as before.
+ */
+public class VoteWriteBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(VoteWriteBuffer.class);
+
+    private final MongoCollection<Document> votesCollection;
+    private final boolean writeBehind;
+    private final Object flushLock = new Object();
+    // Latest not-yet-persisted vote per proposalId:userId, guarded by this
+    private final Map<String, Document> pending = new LinkedHashMap<>();
+    private final Path journalPath;
+    private FileChannel journal;
+    // Sealed journal segments whose votes are not known to be in MongoDB yet, guarded by this
+    private final List<Path> sealed = new ArrayList<>();
+    private long segment = 0;
+    private ScheduledExecutorService flusher;
+
+    public VoteWriteBuffer(MongoCollection<Document> votesCollection) {
+        this(votesCollection, journalPathFromEnv(), parseLong(System.getenv("VOTE_FLUSH_INTERVAL_MS"), 200L));
+    }
+
+    // A null journal path selects synchronous writes
+    VoteWriteBuffer(MongoCollection<Document> votesCollection, Path journalPath, long intervalMs) {
+        this.votesCollection = votesCollection;
+        this.journalPath = journalPath;
+        this.writeBehind = journalPath != null;
+        if (!writeBehind) {
+            logger.info("Vote write-behind disabled. Votes are written to MongoDB synchronously.");
+            return;
+        }
+
+        try {
+            replayJournal();
+            journal = openJournal();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open vote journal at " + journalPath.toAbsolutePath(), e);
+        }
+        // Anything recovered from the journal goes to MongoDB before we serve traffic, or on a later interval
+        flush();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vote-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Error flushing buffered votes: ", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Vote write-behind enabled. Journal: '{}', flush interval: {} ms.", journalPath.toAbsolutePath(), intervalMs);
+    }
+
+    /**
+     * Accepts a vote record (proposalId, userId, username, voteChoice,
+     * electoralStrength, timestamp). Returns once the vote is durable: journaled
+     * locally in write-behind mode, written to MongoDB otherwise.
+     */
+    public void submit(Document voteRecord) throws IOException {
+        if (!writeBehind) {
+            votesCollection.updateOne(filterFor(voteRecord), new Document("$set", voteRecord), new UpdateOptions().upsert(true));
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((toJournalEntry(voteRecord) + "\n").getBytes(StandardCharsets.UTF_8));
+        FileChannel written;
+        synchronized (this) {
+            written = journal;
+            while (line.hasRemaining()) {
+                written.write(line);
+            }
+            pending.put(keyFor(voteRecord), voteRecord);
+        }
+        // Concurrent voters share the cost of the sync
+        try {
+            written.force(false);
+        } catch (ClosedChannelException e) {
+            // Sealed by a flush meanwhile, which syncs the segment before closing it
+        }
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Writes all buffered votes to MongoDB. Returns false if that failed; the votes
+     * stay buffered and journaled for the next attempt. Always true when
+     * write-behind is off.
+     */
+    public boolean flush() {
+        if (!writeBehind) {
+            return true;
+        }
+        synchronized (flushLock) {
+            boolean idle;
+            synchronized (this) {
+                idle = pending.isEmpty();
+            }
+            if (idle) {
+                // Segments left from startup hold nothing that is not in MongoDB already
+                deleteSealed();
+                return true;
+            }
+            List<Document> batch;
+            synchronized (this) {
+                try {
+                    rotate();
+                } catch (IOException e) {
+                    // The votes stay in the current journal and are sealed by a later flush
+                    logger.warn("Failed to seal vote journal segment: {}", e.getMessage());
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            List<WriteModel<Document>> upserts = new ArrayList<>();
+            for (Document vote : batch) {
+                upserts.add(new UpdateOneModel<>(filterFor(vote), new Document("$set", vote), new UpdateOptions().upsert(true)));
+            }
+            try {
+                votesCollection.bulkWrite(upserts, new BulkWriteOptions().ordered(false));
+            } catch (RuntimeException e) {
+                // Put the batch back unless a newer vote from the same member arrived meanwhile
+                synchronized (this) {
+                    for (Document vote : batch) {
+                        pending.putIfAbsent(keyFor(vote), vote);
+                    }
+                }
+                logger.error("Failed to flush {} buffered votes to MongoDB; retrying on the next interval: {}", batch.size(), e.getMessage());
+                return false;
+            }
+
+            // Every sealed segment's votes were in this batch, or superseded by a newer vote in it
+            deleteSealed();
+            logger.debug("Flushed {} buffered votes to MongoDB.", batch.size());
+            return true;
+        }
+    }
+
+    /** Buffered votes on any of these proposals, not yet in MongoDB. */
+    public synchronized List<Document> pendingVotesFor(Collection<ObjectId> proposalIds) {
+        List<Document> votes = new ArrayList<>();
+        for (Document vote : pending.values()) {
+            if (proposalIds.contains(vote.getObjectId("proposalId"))) {
+                votes.add(vote);
+            }
+        }
+        return votes;
+    }
+
+    /** Buffered vote choices of one member, keyed by proposal, not yet in MongoDB. */
+    public synchronized Map<ObjectId, String> pendingChoicesFor(ObjectId userId) {
+        Map<ObjectId, String> choices = new HashMap<>();
+        for (Document vote : pending.values()) {
+            if (userId.equals(vote.getObjectId("userId"))) {
+                choices.put(vote.getObjectId("proposalId"), vote.getString("voteChoice"));
+            }
+        }
+        return choices;
+    }
+
+    public void shutdown() {
+        if (!writeBehind) {
+            return;
+        }
+        flusher.shutdown();
+        if (!flush()) {
+            logger.error("Buffered votes could not be flushed on shutdown; they remain in the journal.");
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close vote journal: {}", e.getMessage());
+        }
+    }
+
+    // Called with this lock held: syncs and seals the journal as the next segment, then starts a new one
+    private void rotate() throws IOException {
+        journal.force(false);
+        journal.close();
+        Path segmentPath = segmentPath(++segment);
+        try {
+            Files.move(journalPath, segmentPath);
+            sealed.add(segmentPath);
+        } finally {
+            journal = openJournal();
+        }
+    }
+
+    private void deleteSealed() {
+        List<Path> persisted;
+        synchronized (this) {
+            persisted = new ArrayList<>(sealed);
+            sealed.clear();
+        }
+        for (Path segmentPath : persisted) {
+            try {
+                Files.deleteIfExists(segmentPath);
+            } catch (IOException e) {
+                logger.warn("Failed to delete vote journal segment '{}'; it will be replayed idempotently: {}", segmentPath, e.getMessage());
+            }
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return journalPath.resolveSibling(journalPath.getFileName() + "." + number);
+    }
+
+    // Sealed segments oldest first, then the journal itself; everything read counts as sealed
+    private void replayJournal() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        Path directory = journalPath.toAbsolutePath().getParent();
+        String prefix = journalPath.getFileName() + ".";
+        try (Stream<Path> siblings = Files.list(directory)) {
+            siblings.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d+")) {
+                    segments.put(Long.parseLong(name.substring(prefix.length())), path);
+                }
+            });
+        }
+        if (!segments.isEmpty()) {
+            segment = segments.lastKey();
+        }
+        if (Files.exists(journalPath)) {
+            Path segmentPath = segmentPath(++segment);
+            Files.move(journalPath, segmentPath);
+            segments.put(segment, segmentPath);
+        }
+
+        int replayed = 0;
+        for (Path segmentPath : segments.values()) {
+            for (String line : Files.readAllLines(segmentPath, StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    Document vote = fromJournalEntry(line);
+                    pending.put(keyFor(vote), vote);
+                    replayed++;
+                } catch (JSONException | IllegalArgumentException e) {
+                    // A torn final line from a crash mid-write was never acknowledged
+                    logger.warn("Skipping unreadable vote journal entry: {}", e.getMessage());
+                }
+            }
+            sealed.add(segmentPath);
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} vote journal entries ({} distinct votes).", replayed, pending.size());
+        }
+    }
+
+    private static Bson filterFor(Document vote) {
+        return Filters.and(Filters.eq("proposalId", vote.getObjectId("proposalId")), Filters.eq("userId", vote.getObjectId("userId")));
+    }
+
+    private static String keyFor(Document vote) {
+        return vote.getObjectId("proposalId").toHexString() + ":" + vote.getObjectId("userId").toHexString();
+    }
+
+    private static String toJournalEntry(Document vote) {
+        JSONObject entry = new JSONObject();
+        entry.put("proposalId", vote.getObjectId("proposalId").toHexString());
+        entry.put("userId", vote.getObjectId("userId").toHexString());
+        entry.put("username", vote.getString("username"));
+        entry.put("voteChoice", vote.getString("voteChoice"));
+        entry.put("electoralStrength", vote.getInteger("electoralStrength", 1));
+        entry.put("timestamp", vote.getDate("timestamp").getTime());
+        return entry.toString();
+    }
+
+    private static Document fromJournalEntry(String line) {
+        JSONObject entry = new JSONObject(line);
+        return new Document("proposalId", new ObjectId(entry.getString("proposalId")))
+                .append("userId", new ObjectId(entry.getString("userId")))
+                .append("username", entry.getString("username"))
+                .append("voteChoice", entry.getString("voteChoice"))
+                .append("electoralStrength", entry.getInt("electoralStrength"))
+                .append("timestamp", new Date(entry.getLong("timestamp")));
+    }
+
+    private static Path journalPathFromEnv() {
+        if (!Boolean.parseBoolean(System.getenv("VOTE_WRITE_BEHIND"))) {
+            return null;
+        }
+        String journalSetting = System.getenv("VOTE_JOURNAL_PATH");
+        return Paths.get(journalSetting != null && !journalSetting.isEmpty() ? journalSetting : "vote-journal.log");
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid VOTE_FLUSH_INTERVAL_MS value '{}'. Using {} ms.", value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
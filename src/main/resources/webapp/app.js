@@ -70,6 +70,17 @@ const queueCollapseButton         = document.getElementById('queue-collapse');
 let currentUser = null; // { username: '', role: '', id: '' }
 let ws = null; // WebSocket connection
 let csrfToken = null; // Variable to store the CSRF token
+// Position in the server's event journal, presented on reconnect to replay missed frames
+let journalEpoch = null;
+let lastSeq = null;
+// Proposals as last fetched, kept current by the server's versioned change records
+let proposalsById = new Map();
+let proposalsVersion = null; // { epoch, n } parsed from X-Resource-Version
+let proposalsSync = null; // Full fetch in flight, if any
+let proposalChangesDuringSync = []; // Change records that arrived while it was in flight
+// Speaking queue items by id, kept current by queueDelta messages
+let queueItemsById = new Map();
+let queueVersion = null; // { epoch, n } of the snapshot plus the deltas applied to it
 
 // ======================
 // Utility Functions
@@ -371,7 +382,7 @@ async function fetchQueue(retry = false) {
 
         if (!res.ok) throw new Error(res.statusText);
         const q = await res.json();
-        renderQueue(q);
+        acceptQueueSnapshot(q, parseResourceVersion(res.headers.get('X-Resource-Version')));
     } catch (err) {
         console.error('Queue fetch failed:', err);
         if (!retry) setTimeout(() => fetchQueue(true), 1000);
@@ -554,6 +565,22 @@ function renderConstitutionalProposals(proposals) {
 }
 
 async function fetchProposals() {
+    if (proposalsSync) {
+        return proposalsSync;
+    }
+    proposalsSync = loadProposals();
+    try {
+        await proposalsSync;
+    } finally {
+        proposalsSync = null;
+    }
+    // Records newer than the fetched list still apply on top of it
+    const missed = proposalChangesDuringSync;
+    proposalChangesDuringSync = [];
+    missed.forEach(applyProposalChange);
+}
+
+async function loadProposals() {
     try {
         const response = await fetch('/api/proposals', {
             method: 'GET',
@@ -561,13 +588,9 @@ async function fetchProposals() {
         });
         if (response.ok) {
             const allProposals = await response.json();
-            // Split proposals into three groups:
-            const constitutionalProposals = allProposals.filter(p => p.isConstitutional === true);
-            const priorityProposals = allProposals.filter(p => p.isPriority === true);
-            const normalProposals = allProposals.filter(p => !p.isPriority && !p.isConstitutional);
-            renderConstitutionalProposals(constitutionalProposals);
-            renderPriorityProposals(priorityProposals);
-            renderProposals(normalProposals);
+            proposalsById = new Map(allProposals.map(p => [p.id, p]));
+            proposalsVersion = parseResourceVersion(response.headers.get('X-Resource-Version'));
+            renderAllProposals();
         } else {
             console.warn('Failed to fetch proposals.');
         }
@@ -576,6 +599,70 @@ async function fetchProposals() {
     }
 }
 
+function renderAllProposals() {
+    const allProposals = Array.from(proposalsById.values());
+    // Split proposals into three groups:
+    const constitutionalProposals = allProposals.filter(p => p.isConstitutional === true);
+    const priorityProposals = allProposals.filter(p => p.isPriority === true);
+    const normalProposals = allProposals.filter(p => !p.isPriority && !p.isConstitutional);
+    renderConstitutionalProposals(constitutionalProposals);
+    renderPriorityProposals(priorityProposals);
+    renderProposals(normalProposals);
+}
+
+// "<epoch>-<n>" as sent by the server; the epoch changes whenever the server restarts
+function parseResourceVersion(stamp) {
+    if (!stamp) {
+        return null;
+    }
+    const dash = stamp.lastIndexOf('-');
+    return { epoch: stamp.substring(0, dash), n: Number(stamp.substring(dash + 1)) };
+}
+
+/**
+ * Applies a proposal change record (proposalUpdate, proposalDelete or proposalsUpdated)
+ * to the local list. Records must arrive one version at a time; after a gap, or one
+ * from another server process, the whole list is fetched again instead.
+ */
+function applyProposalChange(message) {
+    if (proposalsSync) {
+        proposalChangesDuringSync.push(message);
+        return;
+    }
+    const version = parseResourceVersion(message.version);
+    const known = proposalsVersion;
+    if (!version || !known || version.epoch !== known.epoch || version.n > known.n + 1) {
+        fetchProposals();
+        return;
+    }
+    if (version.n <= known.n) {
+        return; // Already part of the list we fetched
+    }
+    proposalsVersion = version;
+
+    switch (message.type) {
+        case 'proposalUpdate': {
+            const previous = proposalsById.get(message.proposal.id);
+            // The record does not carry this member's own vote
+            proposalsById.set(message.proposal.id, { userVote: 'Abstain', ...previous, ...message.proposal });
+            break;
+        }
+        case 'proposalDelete':
+            proposalsById.delete(message.proposalId);
+            removeProposalFromUI(message.proposalId);
+            return;
+        case 'proposalsUpdated':
+            (message.results || []).forEach(result => {
+                const proposal = proposalsById.get(result.id);
+                if (proposal) {
+                    proposalsById.set(result.id, { ...proposal, ...result });
+                }
+            });
+            break;
+    }
+    renderAllProposals();
+}
+
 /**
  * Toggles the "stupid" field of a proposal. This calls a PUT endpoint to update the proposal.
  */
@@ -1114,6 +1201,10 @@ async function submitVote(proposalId, voteChoice) {
         });
 
         if (response.ok) {
+            const proposal = proposalsById.get(proposalId);
+            if (proposal) {
+                proposal.userVote = voteChoice;
+            }
             showAlert('Vote submitted successfully.', 'success');
         } else {
             const errorText = await response.text();
@@ -1494,9 +1585,52 @@ function handleSeatUpdate(user) {
     }
 }
 
-function handleQueueUpdate(queue) {
+function handleQueueUpdate(message) {
     console.log('Queue update received, rendering queue.');
-    renderQueue(queue);
+    acceptQueueSnapshot(message.queue, parseResourceVersion(message.version));
+}
+
+// Replaces the local queue, unless we already hold a newer version from the same server
+function acceptQueueSnapshot(items, version) {
+    const known = queueVersion;
+    if (version && known && version.epoch === known.epoch && version.n < known.n) {
+        return;
+    }
+    queueItemsById = new Map(items.map(item => [item.id, item]));
+    queueVersion = version;
+    renderQueue(items);
+}
+
+// Same order as the server: priority, then arrival, then id
+function compareQueueItems(a, b) {
+    return (a.priority - b.priority)
+        || (Date.parse(a.timestamp) - Date.parse(b.timestamp))
+        || (a.id < b.id ? -1 : a.id > b.id ? 1 : 0);
+}
+
+/**
+ * Applies a queueDelta: insert and move carry the item as it now is, remove its id.
+ * Deltas must arrive one version at a time; after a gap the queue is fetched again.
+ */
+function applyQueueDelta(message) {
+    const version = parseResourceVersion(message.version);
+    const known = queueVersion;
+    if (!version || !known || version.epoch !== known.epoch || version.n > known.n + 1) {
+        fetchQueue();
+        return;
+    }
+    if (version.n <= known.n) {
+        return; // Already part of our snapshot
+    }
+    queueVersion = version;
+    message.ops.forEach(op => {
+        if (op.op === 'remove') {
+            queueItemsById.delete(op.id);
+        } else {
+            queueItemsById.set(op.item.id, op.item);
+        }
+    });
+    renderQueue(Array.from(queueItemsById.values()).sort(compareQueueItems));
 }
 
 function handleFineImposed(username, amount) {
@@ -1529,9 +1663,70 @@ async function checkBreakStatus() {
 // ======================
 // WebSocket Initialization
 // ======================
+// Dispatches one server event, whether it came alone or inside a batch
+function handleSocketMessage(message) {
+    try {
+        switch (message.type) {
+            case 'seatUpdate':
+                handleSeatUpdate(message.user);
+                break;
+            case 'proposalUpdate':
+            case 'proposalDelete':
+            case 'proposalsUpdated':
+                applyProposalChange(message);
+                break;
+            case 'fineImposed':
+                handleFineImposed(message.username, message.amount);
+                break;
+            case 'break':
+                handleBreak();
+                break;
+            case 'endBreak':
+                handleEndBreak();
+                break;
+            case 'endSession':
+                handleEndSession();
+                break;
+            case 'queueUpdate':
+                handleQueueUpdate(message);
+                break;
+            case 'queueDelta':
+                applyQueueDelta(message);
+                break;
+            case 'resume':
+                // Missed frames, if any, follow and advance lastSeq themselves
+                if (journalEpoch === null) {
+                    lastSeq = message.seq;
+                }
+                journalEpoch = message.epoch;
+                break;
+            case 'resync':
+                journalEpoch = message.epoch;
+                lastSeq = message.seq;
+                resyncState();
+                break;
+            default:
+                console.warn('Unknown WebSocket message type:', message.type);
+        }
+    } catch (error) {
+        console.error('Error processing WebSocket message:', message, error);
+    }
+}
+
+// The server no longer holds everything we missed; fetch the state again
+function resyncState() {
+    checkBreakStatus();
+    fetchProposals();
+    fetchUsers();
+    fetchQueue();
+}
+
 function initializeWebSocket() {
     const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:';
-    const wsUrl = `${protocol}//${window.location.host}/ws/seat/`;
+    let wsUrl = `${protocol}//${window.location.host}/ws/seat/`;
+    if (journalEpoch !== null) {
+        wsUrl += `?since=${lastSeq}&epoch=${encodeURIComponent(journalEpoch)}`;
+    }
     ws = new WebSocket(wsUrl);
 
     ws.onopen = () => {
@@ -1539,47 +1734,20 @@ function initializeWebSocket() {
     };
 
     ws.onmessage = (event) => {
+        let message;
         try {
-            const message = JSON.parse(event.data);
-            console.log('Received WebSocket message:', message);
-
-            switch (message.type) {
-                case 'seatUpdate':
-                    handleSeatUpdate(message.user);
-                    break;
-                case 'proposalUpdate':
-                    console.log('Proposal update received, fetching proposals.');
-                    fetchProposals();
-                    break;
-                case 'proposalDelete':
-                    console.log(`Proposal deletion received for ID: ${message.proposalId}, removing from UI.`);
-                    removeProposalFromUI(message.proposalId);
-                    break;
-                case 'proposalsUpdated':
-                    console.log('General proposal update received (e.g., voting ended), fetching proposals.');
-                    fetchProposals();
-                    break;
-                case 'fineImposed':
-                    handleFineImposed(message.username, message.amount);
-                    break;
-                case 'break':
-                    handleBreak();
-                    break;
-                case 'endBreak':
-                    handleEndBreak();
-                    break;
-                case 'endSession':
-                    handleEndSession();
-                    break;
-                case 'queueUpdate':
-                    handleQueueUpdate(message.queue);
-                    break;
-                default:
-                    console.warn('Unknown WebSocket message type:', message.type);
-            }
+            message = JSON.parse(event.data);
         } catch (error) {
             console.error('Error processing WebSocket message:', event.data, error);
+            return;
+        }
+        console.log('Received WebSocket message:', message);
+        if (typeof message.seq === 'number' && message.type !== 'resume' && message.type !== 'resync') {
+            lastSeq = Math.max(lastSeq || 0, message.seq);
         }
+        // The server sends everything from one broadcast tick as a single batch frame
+        const events = message.type === 'batch' ? message.events : [message];
+        events.forEach(handleSocketMessage);
     };
 
     ws.onerror = (error) => {
@@ -1676,6 +1844,8 @@ function resetApp() {
         ws.close(); 
         ws = null;
     }
+    journalEpoch = null;
+    lastSeq = null;
     csrfToken = null; // Clear CSRF token on app reset/logout
     // Stop polling - No longer needed as polling functions are removed
 }
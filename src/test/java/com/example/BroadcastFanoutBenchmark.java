@@ -0,0 +1,143 @@
+package com.example;
+
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.LogicalConnection;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * WebSocket fan-out cost per broadcast at 50, 500 and 5,000 sessions: the old
+ * per-session {@code sendString}, which UTF-8 encodes the message again for every
+ * session, against {@link OutboundQueue#sendFrame} over one shared encoded buffer.
+ * <p>
+ * Sessions are real Jetty remote endpoints writing into an in-memory sink, so the
+ * numbers cover everything up to the socket write. Not part of the regular test
+ * run; start it with {@code mvn test -Dtest=BroadcastFanoutBenchmark}.
+ */
+public class BroadcastFanoutBenchmark {
+
+    private static final int[] SESSION_COUNTS = {50, 500, 5000};
+    private static final int SENDS_PER_ROUND = 500_000;
+
+    private static final WriteCallback IGNORE = new WriteCallback() {
+        @Override
+        public void writeSuccess() {
+        }
+
+        @Override
+        public void writeFailed(Throwable error) {
+        }
+    };
+
+    // Stands in for the connection: copies each frame's payload like a socket write would
+    private static final class Sink implements OutgoingFrames {
+        final ByteBuffer socket = ByteBuffer.allocateDirect(64 * 1024);
+        long bytes;
+
+        @Override
+        public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+            socket.clear();
+            ByteBuffer payload = frame.getPayload();
+            bytes += payload.remaining();
+            socket.put(payload);
+            callback.writeSuccess();
+        }
+    }
+
+    @Test
+    void compareFanout() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+        String message = queueUpdate();
+        LogicalConnection connection = mock(LogicalConnection.class, withSettings().stubOnly());
+        System.out.printf("Message: %d chars%n", message.length());
+
+        for (int sessions : SESSION_COUNTS) {
+            Sink sink = new Sink();
+            WebSocketRemoteEndpoint[] endpoints = new WebSocketRemoteEndpoint[sessions];
+            for (int i = 0; i < sessions; i++) {
+                endpoints[i] = new WebSocketRemoteEndpoint(connection, sink);
+            }
+            int rounds = Math.max(20, SENDS_PER_ROUND / sessions);
+
+            BiConsumer<WebSocketRemoteEndpoint[], String> perSessionEncode = (all, text) -> {
+                for (WebSocketRemoteEndpoint endpoint : all) {
+                    endpoint.sendString(text, IGNORE);
+                }
+            };
+            BiConsumer<WebSocketRemoteEndpoint[], String> sharedFrame = (all, text) -> {
+                OutboundQueue.Message frame = new OutboundQueue.Message(text, null, Topic.QUEUE, true);
+                for (WebSocketRemoteEndpoint endpoint : all) {
+                    OutboundQueue.sendFrame(endpoint, frame, IGNORE);
+                }
+            };
+
+            long[] before = measure(threads, perSessionEncode, endpoints, message, rounds);
+            long expectedBytes = sink.bytes;
+            sink.bytes = 0;
+            long[] after = measure(threads, sharedFrame, endpoints, message, rounds);
+            assertEquals(expectedBytes, sink.bytes, "both paths must write the same payload bytes");
+
+            System.out.printf("%5d sessions  per-session encode: %8.1f us, %10d B allocated per broadcast%n",
+                    sessions, before[0] / 1e3, before[1]);
+            System.out.printf("%5d sessions  shared frame:       %8.1f us, %10d B allocated per broadcast%n",
+                    sessions, after[0] / 1e3, after[1]);
+        }
+    }
+
+    // Returns {nanoseconds, allocated bytes} per broadcast after a warm-up of the same length
+    private static long[] measure(com.sun.management.ThreadMXBean threads, BiConsumer<WebSocketRemoteEndpoint[], String> fanout,
+                                  WebSocketRemoteEndpoint[] endpoints, String message, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            fanout.accept(endpoints, message);
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            fanout.accept(endpoints, message);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new long[]{elapsed / rounds, allocated / rounds};
+    }
+
+    // A realistic queueUpdate: twenty speakers, some with non-ASCII names
+    private static String queueUpdate() {
+        JSONArray queue = new JSONArray();
+        String[] names = {"Novák", "Dvořáková", "Černý", "Procházka", "Kučerová"};
+        for (int i = 0; i < 20; i++) {
+            JSONObject item = new JSONObject();
+            item.put("id", String.format("65f1c0ffee00000000%06x", i));
+            item.put("type", "SPEAKER_REQUEST");
+            item.put("status", i == 0 ? "active" : "pending");
+            item.put("priority", 10);
+            item.put("timestamp", "2026-10-17T09:" + String.format("%02d", i) + ":00Z");
+            item.put("userId", String.format("65f1c0ffee11111111%06x", i));
+            item.put("username", names[i % names.length] + " " + i);
+            item.put("requestType", "REQUESTING_TO_SPEAK");
+            queue.put(item);
+        }
+        JSONObject message = new JSONObject();
+        message.put("type", "queueUpdate");
+        message.put("queue", queue);
+        return message.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BroadcastSchedulerTest {
+
+    private static String seat(String userId, String status) {
+        return JsonWriter.event("seatUpdate", "user", "{\"id\":\"" + userId + "\",\"seatStatus\":\"" + status + "\"}");
+    }
+
+    @Test
+    void testMergesSeatChurnIntoOneFramePerTopic() {
+        List<String> published = new ArrayList<>();
+        // Long enough that only the explicit flush below ends the tick
+        BroadcastScheduler scheduler = new BroadcastScheduler(published::add, 60000);
+
+        String[] statuses = {"REQUESTING_TO_SPEAK", "NEUTRAL", "SPEAKING"};
+        for (int i = 0; i < 30; i++) {
+            scheduler.submit(seat("u" + (i % 3), statuses[i % 3] + i));
+            scheduler.submit("{\"type\":\"queueDelta\",\"version\":\"k2-" + i + "\",\"ops\":[]}");
+        }
+        scheduler.submit("{\"type\":\"fineImposed\",\"username\":\"a\",\"amount\":5}");
+        scheduler.flush();
+
+        // One frame each for seats, the queue and fines, in the order the topics first appeared
+        assertEquals(3, published.size());
+        JSONObject seats = new JSONObject(published.get(0));
+        assertEquals("seats", seats.getString("topic"));
+        JSONArray events = seats.getJSONArray("events");
+        assertEquals(3, events.length());
+        // The newest state for each seat, in the order of their last submit
+        assertEquals("SPEAKING29", events.getJSONObject(2).getJSONObject("user").getString("seatStatus"));
+        // Versioned queue deltas are never merged
+        assertEquals(30, new JSONObject(published.get(1)).getJSONArray("events").length());
+        assertEquals("fineImposed", new JSONObject(published.get(2)).getString("type"));
+        assertEquals(Topic.SEATS, OutboundQueue.Message.of(published.get(0)).topic);
+    }
+
+    @Test
+    void testZeroTickPublishesImmediately() {
+        List<String> published = new ArrayList<>();
+        BroadcastScheduler scheduler = new BroadcastScheduler(published::add, 0);
+
+        scheduler.submit(seat("u1", "NEUTRAL"));
+        scheduler.submit(seat("u1", "SPEAKING"));
+
+        // Nothing is held back or merged
+        assertEquals(List.of(seat("u1", "NEUTRAL"), seat("u1", "SPEAKING")), published);
+    }
+}
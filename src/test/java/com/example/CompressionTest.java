@@ -0,0 +1,115 @@
+package com.example;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+
+    private static final String LARGE_JSON = "[" + "{\"title\":\"proposal\"},".repeat(200) + "{}]";
+
+    @TempDir
+    Path webapp;
+
+    private Server server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        Files.write(webapp.resolve("app.js"), "console.log('plain');".repeat(100).getBytes(StandardCharsets.UTF_8));
+        // Different content from app.js so the test can tell which file was served
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(webapp.resolve("app.js.gz")))) {
+            out.write("precompressed".getBytes(StandardCharsets.UTF_8));
+        }
+
+        server = new Server(0);
+        ServletContextHandler context = new ServletContextHandler();
+        context.setResourceBase(webapp.toString());
+        context.addServlet(new ServletHolder(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("application/json");
+                response.getWriter().write("small".equals(request.getParameter("size")) ? "[]" : LARGE_JSON);
+            }
+        }), "/api/*");
+        ServletHolder defaultServlet = new ServletHolder("default", DefaultServlet.class);
+        Main.configureStaticContent(defaultServlet, true, false);
+        context.addServlet(defaultServlet, "/");
+
+        GzipHandler gzipHandler = Main.createGzipHandler(1024);
+        gzipHandler.setHandler(context);
+        server.setHandler(gzipHandler);
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    void testJsonIsGzippedAboveThreshold() throws Exception {
+        HttpURLConnection large = get("/api/proposals", "gzip");
+        assertEquals("gzip", large.getContentEncoding());
+        assertEquals(LARGE_JSON, new String(read(new GZIPInputStream(large.getInputStream())), StandardCharsets.UTF_8));
+
+        HttpURLConnection small = get("/api/proposals?size=small", "gzip");
+        assertNull(small.getContentEncoding());
+
+        HttpURLConnection identity = get("/api/proposals", null);
+        assertNull(identity.getContentEncoding());
+    }
+
+    @Test
+    void testStaticAssetServedPrecompressed() throws Exception {
+        HttpURLConnection gzipped = get("/app.js", "br, gzip");
+        assertEquals("gzip", gzipped.getContentEncoding());
+        assertEquals("precompressed", new String(read(new GZIPInputStream(gzipped.getInputStream())), StandardCharsets.UTF_8));
+
+        HttpURLConnection plain = get("/app.js", null);
+        assertNull(plain.getContentEncoding());
+        assertTrue(new String(read(plain.getInputStream()), StandardCharsets.UTF_8).startsWith("console.log('plain');"));
+    }
+
+    private HttpURLConnection get(String path, String acceptEncoding) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        assertEquals(200, connection.getResponseCode());
+        return connection;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            input.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ElectoralStrengthsTest {
+
+    private static final String[] PARTIES = {"VSP", "MNSB", "NEZ", "", null};
+
+    private static Document user(ObjectId id, String party, int strength, boolean present) {
+        return new Document("_id", id)
+                .append("partyAffiliation", party)
+                .append("electoralStrength", strength)
+                .append("present", present);
+    }
+
+    // Reference: the full-scan redistribution the servlet used to run on every close
+    private static Map<String, Integer> fullScan(List<Document> users) {
+        Map<String, Integer> adjusted = new HashMap<>();
+        Map<String, List<Document>> byParty = new HashMap<>();
+        for (Document u : users) {
+            String party = u.getString("partyAffiliation");
+            if ("NEZ".equalsIgnoreCase(party)) {
+                if (u.getBoolean("present")) {
+                    adjusted.put(u.getObjectId("_id").toHexString(), u.getInteger("electoralStrength"));
+                }
+                continue;
+            }
+            String key = (party != null && !party.trim().isEmpty()) ? party : "Independent";
+            byParty.computeIfAbsent(key, k -> new ArrayList<>()).add(u);
+        }
+        for (List<Document> members : byParty.values()) {
+            int sumPresent = 0;
+            int sumAbsent = 0;
+            for (Document u : members) {
+                if (u.getBoolean("present")) {
+                    sumPresent += u.getInteger("electoralStrength");
+                } else {
+                    sumAbsent += u.getInteger("electoralStrength");
+                }
+            }
+            if (sumPresent == 0) continue;
+            for (Document u : members) {
+                if (u.getBoolean("present")) {
+                    int es = u.getInteger("electoralStrength");
+                    adjusted.put(u.getObjectId("_id").toHexString(),
+                            (int) Math.round(es + ((double) es * sumAbsent / sumPresent)));
+                }
+            }
+        }
+        return adjusted;
+    }
+
+    @Test
+    void testIncrementalUpdatesMatchFullScan() {
+        Random random = new Random(42);
+        List<Document> users = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            users.add(user(new ObjectId(), PARTIES[random.nextInt(PARTIES.length)], 1 + random.nextInt(20), random.nextBoolean()));
+        }
+        ElectoralStrengths strengths = new ElectoralStrengths();
+        strengths.rebuild(users);
+
+        for (int step = 0; step < 500; step++) {
+            int i = random.nextInt(users.size());
+            Document current = users.get(i);
+            Document changed = user(current.getObjectId("_id"),
+                    random.nextInt(4) == 0 ? PARTIES[random.nextInt(PARTIES.length)] : current.getString("partyAffiliation"),
+                    random.nextInt(4) == 0 ? random.nextInt(20) : current.getInteger("electoralStrength"),
+                    random.nextBoolean());
+            users.set(i, changed);
+            strengths.update(changed);
+
+            Map<String, Integer> expected = fullScan(users);
+            assertEquals(expected, strengths.adjustedMap());
+            assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), strengths.presentStrength());
+            assertEquals(users.stream().mapToInt(u -> u.getInteger("electoralStrength")).sum(), strengths.totalStrength());
+        }
+    }
+
+    @Test
+    void testAbsentStrengthIsRedistributedWithinParty() {
+        ObjectId a = new ObjectId();
+        ObjectId b = new ObjectId();
+        ObjectId c = new ObjectId();
+        ElectoralStrengths strengths = new ElectoralStrengths();
+        List<Document> users = new ArrayList<>();
+        users.add(user(a, "VSP", 10, true));
+        users.add(user(b, "VSP", 10, false));
+        users.add(user(c, "NEZ", 5, true));
+        strengths.rebuild(users);
+
+        assertEquals(20, strengths.adjustedStrength(a));
+        assertEquals(0, strengths.adjustedStrength(b));
+        assertEquals(5, strengths.adjustedStrength(c));
+        assertEquals(25, strengths.presentStrength());
+        assertEquals(2, strengths.presentMembers());
+
+        long version = strengths.version();
+        strengths.update(user(b, "VSP", 10, true));
+        assertTrue(strengths.version() > version);
+        assertEquals(10, strengths.adjustedStrength(a));
+        assertEquals(3, strengths.presentMembers());
+    }
+}
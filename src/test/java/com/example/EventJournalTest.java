@@ -0,0 +1,45 @@
+package com.example;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventJournalTest {
+
+    @Test
+    void testReplaysExactlyTheMissedFrames() {
+        EventJournal journal = new EventJournal(8);
+        OutboundQueue.Message first = journal.append("{\"type\":\"break\"}");
+        journal.append("{\"type\":\"endBreak\"}");
+        journal.append("{}");
+
+        assertEquals("{\"seq\":1,\"type\":\"break\"}", first.text);
+        assertEquals(3, journal.sequence());
+
+        List<OutboundQueue.Message> missed = journal.since(1);
+        assertEquals(2, missed.size());
+        assertEquals("endBreak", new JSONObject(missed.get(0).text).getString("type"));
+        assertEquals(3, new JSONObject(missed.get(1).text).getLong("seq"));
+        // The journal hands out the frames it sent, not re-encoded copies
+        assertSame(first, journal.since(0).get(0));
+        assertTrue(journal.since(3).isEmpty());
+        assertNull(journal.since(4), "a sequence number from the future means another process");
+    }
+
+    @Test
+    void testOverwrittenFramesRequireResync() {
+        EventJournal journal = new EventJournal(4);
+        for (int i = 0; i < 10; i++) {
+            journal.append("{\"type\":\"seatUpdate\",\"n\":" + i + "}");
+        }
+
+        // Frames 7 to 10 are kept, so a client at 6 can still catch up
+        assertEquals(4, journal.since(6).size());
+        assertEquals(7, new JSONObject(journal.since(6).get(0).text).getLong("seq"));
+        assertNull(journal.since(5));
+        assertEquals(7, journal.metrics().getLong("oldest"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpConnectorsTest {
+
+    @Test
+    void testConnectorProfile() {
+        Server server = new Server();
+        HttpConnectors.Settings settings = new HttpConnectors.Settings();
+        settings.acceptors = 1;
+        settings.selectors = 2;
+        settings.idleTimeoutMs = 15000;
+
+        List<ServerConnector> plainOnly = HttpConnectors.create(server, settings);
+        assertEquals(1, plainOnly.size());
+        ServerConnector plain = plainOnly.get(0);
+        assertEquals(1, plain.getAcceptors());
+        assertEquals(2, plain.getSelectorManager().getSelectorCount());
+        assertEquals(15000, plain.getIdleTimeout());
+        assertNotNull(plain.getConnectionFactory(HttpConnectionFactory.class));
+        assertNull(plain.getConnectionFactory(HTTP2CServerConnectionFactory.class));
+
+        settings.h2c = true;
+        settings.keystorePath = "keystore.p12";
+        settings.keystorePassword = "changeit";
+        List<ServerConnector> all = HttpConnectors.create(server, settings);
+        assertEquals(2, all.size());
+        assertNotNull(all.get(0).getConnectionFactory(HTTP2CServerConnectionFactory.class));
+        assertEquals(List.of("ssl", "alpn", "h2", "http/1.1"), all.get(1).getProtocols());
+        assertEquals(8443, all.get(1).getPort());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonProjectionTest {
+
+    @Test
+    void testUserProjectionIsWhitelisted() {
+        ObjectId id = new ObjectId();
+        Document user = new Document("_id", id)
+                .append("username", "anna")
+                .append("password", "$2a$10$secret")
+                .append("role", "MEMBER")
+                .append("present", true)
+                .append("fines", 12L);
+
+        JSONObject json = new JSONObject(JsonProjection.USER.toJson(user));
+
+        assertEquals(id.toHexString(), json.getString("id"));
+        assertEquals("anna", json.getString("username"));
+        assertEquals(12, json.getInt("fines"));
+        assertEquals("NEUTRAL", json.getString("seatStatus"));
+        assertFalse(json.has("password"));
+        assertFalse(json.has("_id"));
+        // Absent field without a default is omitted, as org.json's put(key, null) did
+        assertFalse(json.has("partyAffiliation"));
+    }
+
+    @Test
+    void testEscapingMatchesOrgJson() {
+        String title = "Quote \" backslash \\ </script> tab\t line\n  ";
+        Document proposal = new Document("_id", new ObjectId()).append("title", title);
+
+        String streamed = JsonProjection.PROPOSAL.toJson(proposal);
+
+        assertEquals(title, new JSONObject(streamed).getString("title"));
+        assertTrue(streamed.contains(JSONObject.quote(title)));
+    }
+
+    @Test
+    void testEventWrapsPayload() {
+        String event = JsonWriter.event("seatUpdate", "user", "{\"id\":\"x\"}");
+        assertEquals("{\"type\":\"seatUpdate\",\"user\":{\"id\":\"x\"}}", event);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.jetty.server.session.SessionContext;
+import org.eclipse.jetty.server.session.SessionData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MongoSessionDataStoreTest {
+
+    @Mock
+    private MongoDatabase database;
+    @Mock
+    private MongoCollection<Document> sessionsCollection;
+    @Mock
+    private FindIterable<Document> findIterable;
+
+    private MongoSessionDataStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(database.getCollection(MongoSessionDataStore.COLLECTION)).thenReturn(sessionsCollection);
+        store = new MongoSessionDataStore(database);
+        store.initialize(new SessionContext("node0", null));
+        store.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.stop();
+    }
+
+    @Test
+    void testStoredSessionLoadsBackWithItsAttributes() throws Exception {
+        long now = System.currentTimeMillis();
+        SessionData data = store.newSessionData("abc", now, now, now, 60_000L);
+        data.setExpiry(now + 60_000L);
+        data.setAttribute("username", "alice");
+        data.setAttribute("electoralStrength", 3);
+
+        store.doStore("abc", data, 0L);
+
+        ArgumentCaptor<Document> stored = ArgumentCaptor.forClass(Document.class);
+        verify(sessionsCollection).replaceOne(any(Bson.class), stored.capture(), any(ReplaceOptions.class));
+        assertEquals("abc", stored.getValue().getString("id"));
+        assertTrue(stored.getValue().getString("_id").endsWith("_abc"), "keyed per context and virtual host");
+
+        when(sessionsCollection.find(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.first()).thenReturn(stored.getValue(), (Document) null);
+        SessionData loaded = store.doLoad("abc");
+        assertEquals("alice", loaded.getAttribute("username"));
+        assertEquals(3, loaded.getAttribute("electoralStrength"));
+        assertEquals(now + 60_000L, loaded.getExpiry());
+        assertNull(store.doLoad("gone"));
+    }
+
+    @Test
+    void testExpiredCandidatesAndAbandonedSessions() {
+        long now = System.currentTimeMillis();
+        // Of this node's candidates, "live" is valid, "stale" expired and "gone" deleted elsewhere
+        List<Document> candidates = Arrays.asList(
+                new Document("id", "live").append("expiry", now + 60_000L),
+                new Document("id", "stale").append("expiry", now - 1_000L));
+        // A session another node abandoned long ago
+        List<Document> abandoned = Arrays.asList(new Document("id", "orphan"));
+        FindIterable<Document> candidateFind = iterableOf(candidates);
+        FindIterable<Document> abandonedFind = iterableOf(abandoned);
+        when(sessionsCollection.find(any(Bson.class))).thenReturn(candidateFind).thenReturn(abandonedFind);
+
+        Set<String> expired = store.doGetExpired(new HashSet<>(Arrays.asList("live", "stale", "gone")));
+
+        assertEquals(new HashSet<>(Arrays.asList("stale", "gone", "orphan")), expired);
+    }
+
+    @Test
+    void testWritePolicyDecidesWhenTouchedSessionsAreSaved() throws Exception {
+        long now = System.currentTimeMillis();
+        assertEquals("write-on-change", Main.applySessionWritePolicy(store, null, 60));
+        SessionData data = store.newSessionData("abc", now, now, now, 60_000L);
+
+        store.store("abc", data); // never saved before
+        access(data);
+        store.store("abc", data); // only its expiry moved, within the save period
+        access(data);
+        data.setAttribute("present", true);
+        store.store("abc", data); // attributes changed
+        verify(sessionsCollection, times(2)).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+
+        assertEquals("write-through", Main.applySessionWritePolicy(store, "WRITE-THROUGH", 60));
+        access(data);
+        store.store("abc", data);
+        access(data);
+        store.store("abc", data);
+        verify(sessionsCollection, times(4)).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+    }
+
+    // What Jetty does to a session on every request
+    private static void access(SessionData data) {
+        long now = System.currentTimeMillis();
+        data.setAccessed(now);
+        data.calcAndSetExpiry(now);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> iterableOf(List<Document> docs) {
+        FindIterable<Document> iterable = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        Iterator<Document> source = docs.iterator();
+        when(iterable.projection(any(Bson.class))).thenReturn(iterable);
+        when(iterable.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(inv -> source.hasNext());
+        when(cursor.next()).thenAnswer(inv -> source.next());
+        return iterable;
+    }
+}
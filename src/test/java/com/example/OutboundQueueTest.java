@@ -0,0 +1,163 @@
+package com.example;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class OutboundQueueTest {
+
+    private Session session;
+    private RemoteEndpoint remote;
+
+    @BeforeEach
+    void setUp() {
+        session = mock(Session.class);
+        remote = mock(RemoteEndpoint.class);
+        when(session.getRemote()).thenReturn(remote);
+    }
+
+    private static OutboundQueue.Message seat(String userId, String status) {
+        return OutboundQueue.Message.of(JsonWriter.event("seatUpdate", "user",
+                "{\"id\":\"" + userId + "\",\"seatStatus\":\"" + status + "\"}"));
+    }
+
+    @Test
+    void testCoalescesStateFramesBehindSlowWrite() {
+        OutboundQueue queue = new OutboundQueue(session, 8, 10000);
+        OutboundQueue.Message fine = OutboundQueue.Message.of("{\"type\":\"fineImposed\",\"username\":\"a\",\"amount\":5}");
+
+        queue.offer(seat("u1", "NEUTRAL")); // goes straight out
+        queue.offer(seat("u1", "REQUESTING_TO_SPEAK"));
+        queue.offer(fine);
+        queue.offer(fine);
+        queue.offer(seat("u1", "SPEAKING"));
+        // The second u1 frame was replaced; the events stay, and the newest state follows them
+        assertEquals(3, queue.depth());
+
+        ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+        for (int i = 1; i <= 3; i++) {
+            verify(remote, times(i)).sendString(anyString(), callback.capture());
+            callback.getValue().writeSuccess();
+        }
+        ArgumentCaptor<String> sent = ArgumentCaptor.forClass(String.class);
+        verify(remote, times(4)).sendString(sent.capture(), any(WriteCallback.class));
+
+        List<String> frames = sent.getAllValues();
+        assertTrue(frames.get(0).contains("NEUTRAL"));
+        assertTrue(frames.get(1).contains("fineImposed"));
+        assertTrue(frames.get(2).contains("fineImposed"));
+        assertTrue(frames.get(3).contains("SPEAKING"));
+        assertFalse(String.join("", frames).contains("REQUESTING_TO_SPEAK"));
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testEvictsSessionThatFallsBehind() {
+        OutboundQueue queue = new OutboundQueue(session, 2, 10000);
+        String event = "{\"type\":\"break\"}";
+
+        assertTrue(queue.offer(OutboundQueue.Message.of(event))); // in flight, never completes
+        assertTrue(queue.offer(OutboundQueue.Message.of(event)));
+        assertTrue(queue.offer(OutboundQueue.Message.of(event)));
+        assertFalse(queue.offer(OutboundQueue.Message.of(event)));
+
+        verify(session).close(eq(StatusCode.TRY_AGAIN_LATER), anyString());
+        assertFalse(queue.offer(OutboundQueue.Message.of(event)));
+        verify(remote, times(1)).sendString(anyString(), any(WriteCallback.class));
+    }
+
+    @Test
+    void testReplayGoesFirstAndIgnoresCapacity() {
+        OutboundQueue queue = new OutboundQueue(session, 2, 10000);
+        EventJournal journal = new EventJournal(16);
+        List<OutboundQueue.Message> missed = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            missed.add(journal.append("{\"type\":\"fineImposed\",\"amount\":" + i + "}"));
+        }
+
+        queue.replay(missed); // the first one goes out at once
+        assertTrue(queue.offer(OutboundQueue.Message.of("{\"type\":\"break\"}")));
+        assertEquals(10, queue.depth());
+        verify(session, never()).close(anyInt(), anyString());
+
+        // Completing writes drains the whole replay before the live frame
+        List<String> sent = new ArrayList<>();
+        List<WriteCallback> callbacks = new ArrayList<>();
+        doAnswer(inv -> {
+            sent.add(inv.getArgument(0));
+            callbacks.add(inv.getArgument(1));
+            return null;
+        }).when(remote).sendString(anyString(), any(WriteCallback.class));
+        // The first replayed frame was already written before the answer was installed
+        ArgumentCaptor<WriteCallback> first = ArgumentCaptor.forClass(WriteCallback.class);
+        verify(remote).sendString(eq(missed.get(0).text), first.capture());
+        first.getValue().writeSuccess();
+        while (sent.size() < 10) {
+            callbacks.get(sent.size() - 1).writeSuccess();
+        }
+        assertEquals(missed.get(9).text, sent.get(8));
+        assertEquals("{\"type\":\"break\"}", sent.get(9));
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testSweepClosesSessionWithStuckWrite() throws Exception {
+        OutboundQueue queue = new OutboundQueue(session, 8, 20);
+        queue.offer(OutboundQueue.Message.of("{\"type\":\"break\"}")); // in flight, never completes
+
+        assertFalse(queue.expireStuckSend());
+        Thread.sleep(40);
+        // No further offer arrives; the sweep alone notices the stuck frame
+        assertTrue(queue.expireStuckSend());
+        verify(session).close(eq(StatusCode.TRY_AGAIN_LATER), anyString());
+        assertFalse(queue.expireStuckSend());
+    }
+
+    @Test
+    void testCoalesceKeys() {
+        assertEquals("seatUpdate:u1", OutboundQueue.coalesceKeyOf(
+                JsonWriter.event("seatUpdate", "user", "{\"id\":\"u1\",\"seatStatus\":\"NEUTRAL\"}")));
+        assertEquals("seatStatusChange:u1", OutboundQueue.coalesceKeyOf(
+                "{\"type\":\"seatStatusChange\",\"userId\":\"u1\",\"seatStatus\":\"SPEAKING\"}"));
+        // Versioned records, as the server sends them, are applied in sequence and never replaced
+        assertNull(OutboundQueue.coalesceKeyOf(
+                JsonWriter.event("proposalUpdate", "proposal", "{\"id\":\"p1\"}", "k2-7")));
+        assertNull(OutboundQueue.coalesceKeyOf("{\"type\":\"proposalsUpdated\",\"version\":\"k2-8\",\"results\":[]}"));
+        assertNull(OutboundQueue.coalesceKeyOf("{\"type\":\"queueUpdate\",\"version\":\"k2-3\",\"queue\":[]}"));
+        assertNull(OutboundQueue.coalesceKeyOf("{\"type\":\"queueDelta\",\"version\":\"k2-4\",\"ops\":[]}"));
+        assertNull(OutboundQueue.coalesceKeyOf("{\"type\":\"proposalDelete\",\"proposalId\":\"p1\"}"));
+        assertNull(OutboundQueue.coalesceKeyOf("not json"));
+    }
+
+    @Test
+    void testOnlyBroadcastsLeaveTheHeap() {
+        OutboundQueue.Message broadcast = OutboundQueue.Message.of("{\"type\":\"break\"}");
+        OutboundQueue.Message single = OutboundQueue.Message.single("{\"type\":\"resume\",\"seq\":3}");
+        assertTrue(broadcast.payload.isDirect());
+        assertFalse(single.payload.isDirect());
+        assertTrue(single.payload.isReadOnly());
+        assertEquals(single.text.length(), single.payload.remaining());
+    }
+
+    @Test
+    void testTopics() {
+        assertEquals(Topic.PENDING, OutboundQueue.Message.of("{\"type\":\"pendingProposalNew\",\"proposal\":{}}").topic);
+        assertEquals(Topic.QUEUE, OutboundQueue.Message.of("{\"seq\":4,\"type\":\"queueDelta\",\"ops\":[]}").topic);
+        assertEquals(Topic.SYSTEM, OutboundQueue.Message.of("not json").topic);
+        assertFalse(Topic.PENDING.allows("MEMBER"));
+        assertTrue(Topic.PENDING.allows("PRESIDENT"));
+        assertFalse(Topic.DEFAULTS.contains(Topic.PENDING));
+    }
+}
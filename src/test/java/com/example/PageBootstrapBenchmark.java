@@ -0,0 +1,146 @@
+package com.example;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Page-bootstrap latency over HTTP/1.1 and HTTP/2 (h2c) against the connector
+ * built by {@link HttpConnectors}. One bootstrap is what index.html does on load:
+ * the page, then app.js, then the five startup fetches in parallel. Each bootstrap
+ * starts on fresh connections, like a new tab, and HTTP/1.1 is capped at six
+ * connections per host like a browser.
+ * <p>
+ * Not part of the regular test run; start it with
+ * {@code mvn test -Dtest=PageBootstrapBenchmark}. On loopback the round trip is
+ * almost free, so the gap here understates what members see over a real network
+ * (and over TLS, where every extra HTTP/1.1 connection is another handshake).
+ */
+public class PageBootstrapBenchmark {
+
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 300;
+    // Roughly one MongoDB round trip per API call
+    private static final long API_LATENCY_MS = 5;
+    private static final List<String> STARTUP_FETCHES = Arrays.asList(
+            "/api/user-info", "/api/proposals", "/api/users?present=true", "/api/parliament-queue/view", "/api/system/break-status");
+    private static final byte[] APP_JS = new byte[76 * 1024];
+    private static final byte[] INDEX_HTML = new byte[20 * 1024];
+
+    @Test
+    void compareBootstrapLatency() throws Exception {
+        HttpConnectors.Settings settings = new HttpConnectors.Settings();
+        settings.host = "localhost";
+        settings.port = 0;
+        settings.h2c = true;
+
+        Server server = new Server(new QueuedThreadPool(200));
+        ServerConnector connector = HttpConnectors.plain(server, settings);
+        ConnectionStatistics connections = new ConnectionStatistics();
+        connector.addBean(connections);
+        server.addConnector(connector);
+        ServletContextHandler context = new ServletContextHandler();
+        context.addServlet(new ServletHolder(new BootstrapServlet()), "/*");
+        server.setHandler(context);
+        server.start();
+        String base = "http://localhost:" + connector.getLocalPort();
+
+        try {
+            for (HttpVersion version : new HttpVersion[]{HttpVersion.HTTP_1_1, HttpVersion.HTTP_2}) {
+                for (int i = 0; i < WARMUP; i++) {
+                    bootstrap(base, version);
+                }
+                connections.reset();
+                long[] nanos = new long[ITERATIONS];
+                for (int i = 0; i < ITERATIONS; i++) {
+                    nanos[i] = bootstrap(base, version);
+                }
+                Arrays.sort(nanos);
+                System.out.printf("%-8s bootstrap: median %.2f ms, p95 %.2f ms, %.1f connections per page%n",
+                        version, nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS * 95 / 100] / 1e6,
+                        (double) connections.getConnectionsTotal() / ITERATIONS);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Runs one page load on a fresh client and returns its wall-clock duration
+    private static long bootstrap(String base, HttpVersion version) throws Exception {
+        HttpClient client = version == HttpVersion.HTTP_2
+                ? new HttpClient(new HttpClientTransportOverHTTP2(new HTTP2Client()), null)
+                : new HttpClient(new HttpClientTransportOverHTTP(1), null);
+        client.setMaxConnectionsPerDestination(6);
+        client.start();
+        try {
+            long start = System.nanoTime();
+            get(client, base + "/index.html", version);
+            get(client, base + "/app.js", version);
+            List<CompletableFuture<Void>> fetches = new ArrayList<>();
+            for (String path : STARTUP_FETCHES) {
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                client.newRequest(base + path).version(version).send(result -> {
+                    if (result.isSucceeded()) {
+                        done.complete(null);
+                    } else {
+                        done.completeExceptionally(result.getFailure());
+                    }
+                });
+                fetches.add(done);
+            }
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+            return System.nanoTime() - start;
+        } finally {
+            client.stop();
+        }
+    }
+
+    private static void get(HttpClient client, String url, HttpVersion version) throws Exception {
+        ContentResponse response = client.newRequest(url).version(version).timeout(10, TimeUnit.SECONDS).send();
+        assertEquals(200, response.getStatus());
+        assertEquals(version, response.getVersion());
+    }
+
+    private static class BootstrapServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String path = request.getRequestURI();
+            if (path.startsWith("/api/")) {
+                try {
+                    Thread.sleep(API_LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response.setContentType("application/json");
+                response.getWriter().write("[]");
+            } else {
+                response.setContentType(path.endsWith(".js") ? "application/javascript" : "text/html");
+                response.getOutputStream().write(path.endsWith(".js") ? APP_JS : INDEX_HTML);
+            }
+        }
+    }
+}
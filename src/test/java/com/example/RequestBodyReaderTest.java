@@ -0,0 +1,163 @@
+package com.example;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RequestBodyReaderTest {
+
+    private static final String VOTE_BODY = "{\"proposalId\":\"65f1c0ffee0000000000abcd\",\"voteChoice\":\"For\"}";
+
+    private final RequestBodyReader reader = new RequestBodyReader();
+
+    private static ServletInputStream stream(byte[] body) {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+    }
+
+    private static HttpServletRequest request(String body, long declaredLength) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getContentLengthLong()).thenReturn(declaredLength);
+        // Streams are created on first use so their cost is counted with the path that reads them
+        lenient().when(request.getInputStream()).thenAnswer(i -> stream(bytes));
+        lenient().when(request.getReader()).thenAnswer(i -> new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)));
+        return request;
+    }
+
+    @Test
+    void testParsesTypedVote() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        JSONObject json = reader.readObject(request(VOTE_BODY, VOTE_BODY.length()), response, RequestBodyReader.SMALL_LIMIT);
+
+        ApiRequests.Vote vote = ApiRequests.Vote.from(json);
+        assertEquals("65f1c0ffee0000000000abcd", vote.proposalId);
+        assertEquals("For", vote.voteChoice);
+        verify(response, never()).sendError(anyInt(), anyString());
+    }
+
+    @Test
+    void testRejectsOversizedAndMalformedBodies() throws Exception {
+        // Declared length over the limit: refused without touching the body
+        HttpServletRequest declared = request(VOTE_BODY, RequestBodyReader.SMALL_LIMIT + 1);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        assertNull(reader.readObject(declared, response, RequestBodyReader.SMALL_LIMIT));
+        verify(response).sendError(eq(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE), anyString());
+        verify(declared, never()).getInputStream();
+
+        // Chunked body over the limit
+        StringBuilder big = new StringBuilder("{\"title\":\"");
+        while (big.length() <= RequestBodyReader.SMALL_LIMIT) {
+            big.append("xxxxxxxxxx");
+        }
+        big.append("\"}");
+        response = mock(HttpServletResponse.class);
+        assertNull(reader.readObject(request(big.toString(), -1), response, RequestBodyReader.SMALL_LIMIT));
+        verify(response).sendError(eq(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE), anyString());
+
+        // A huge chunked body is refused one byte past the limit, not after filling the pooled buffer
+        byte[] huge = new byte[200_000];
+        ServletInputStream hugeStream = stream(huge);
+        HttpServletRequest hugeRequest = mock(HttpServletRequest.class);
+        when(hugeRequest.getContentLengthLong()).thenReturn(-1L);
+        when(hugeRequest.getInputStream()).thenReturn(hugeStream);
+        assertNull(reader.readObject(hugeRequest, mock(HttpServletResponse.class), RequestBodyReader.SMALL_LIMIT));
+        assertEquals(huge.length - RequestBodyReader.SMALL_LIMIT - 1, hugeStream.read(huge, 0, huge.length));
+
+        // Not an object at all
+        response = mock(HttpServletResponse.class);
+        assertNull(reader.readObject(request("voteChoice=For", -1), response, RequestBodyReader.SMALL_LIMIT));
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+    }
+
+    @Test
+    void testAllocatesLessThanReadLineLoop() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(bean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        int iterations = 2000;
+
+        // Requests are built up front so only the body handling is measured
+        HttpServletRequest[] legacyRequests = new HttpServletRequest[iterations];
+        HttpServletRequest[] pooledRequests = new HttpServletRequest[iterations];
+        for (int i = 0; i < iterations; i++) {
+            legacyRequests[i] = request(VOTE_BODY, VOTE_BODY.length());
+            pooledRequests[i] = request(VOTE_BODY, VOTE_BODY.length());
+        }
+        // Warm up both paths
+        legacyRead(request(VOTE_BODY, VOTE_BODY.length()));
+        reader.readObject(request(VOTE_BODY, VOTE_BODY.length()), response, RequestBodyReader.SMALL_LIMIT);
+
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (HttpServletRequest r : legacyRequests) {
+            legacyRead(r);
+        }
+        long legacyBytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+        start = threads.getThreadAllocatedBytes(threadId);
+        for (HttpServletRequest r : pooledRequests) {
+            reader.readObject(r, response, RequestBodyReader.SMALL_LIMIT);
+        }
+        long pooledBytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue(pooledBytes < legacyBytes,
+                "pooled reader allocated " + pooledBytes + " bytes, readLine loop " + legacyBytes);
+    }
+
+    // What the handlers did before: readLine into a StringBuilder, then parse the String
+    private static JSONObject legacyRead(HttpServletRequest request) throws IOException {
+        BufferedReader body = request.getReader();
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = body.readLine()) != null) {
+            sb.append(line);
+        }
+        return new JSONObject(sb.toString());
+    }
+
+    private static void assumeAllocationCounting(java.lang.management.ThreadMXBean bean) {
+        org.junit.jupiter.api.Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+    }
+}
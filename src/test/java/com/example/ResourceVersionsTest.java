@@ -0,0 +1,49 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ResourceVersionsTest {
+
+    @Test
+    void testBumpChangesTag() {
+        ResourceVersions versions = new ResourceVersions();
+        String before = versions.etag(ResourceVersions.Resource.PROPOSALS, "u1");
+
+        assertEquals(before, versions.etag(ResourceVersions.Resource.PROPOSALS, "u1"));
+        assertNotEquals(before, versions.etag(ResourceVersions.Resource.PROPOSALS, "u2"));
+        assertNotEquals(before, versions.etag(ResourceVersions.Resource.VOTES, "u1"));
+
+        long version = versions.bump(ResourceVersions.Resource.PROPOSALS);
+        assertNotEquals(before, versions.etag(ResourceVersions.Resource.PROPOSALS, "u1"));
+        assertTrue(versions.stamp(version).endsWith("-1"));
+
+        // Votes have their own counter so they never show up as a gap in the proposal change feed
+        versions.bump(ResourceVersions.Resource.VOTES);
+        assertEquals(version, versions.current(ResourceVersions.Resource.PROPOSALS));
+    }
+
+    @Test
+    void testNotModifiedOnlyForMatchingTag() {
+        String etag = new ResourceVersions().etag(ResourceVersions.Resource.VOTES, null);
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.getHeader("If-None-Match")).thenReturn("\"v-old-1\", W/" + etag);
+        assertTrue(ResourceVersions.notModified(request, response, etag));
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setHeader("ETag", etag);
+
+        HttpServletRequest stale = mock(HttpServletRequest.class);
+        HttpServletResponse fresh = mock(HttpServletResponse.class);
+        when(stale.getHeader("If-None-Match")).thenReturn("\"v-old-1\"");
+        assertFalse(ResourceVersions.notModified(stale, fresh, etag));
+        verify(fresh, never()).setStatus(anyInt());
+        verify(fresh).setHeader("ETag", etag);
+    }
+}
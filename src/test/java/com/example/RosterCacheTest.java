@@ -0,0 +1,115 @@
+package com.example;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RosterCacheTest {
+
+    @Mock
+    private MongoCollection<Document> usersCollection;
+    @Mock
+    private FindIterable<Document> findIterable;
+
+    private final ObjectId aliceId = new ObjectId();
+    private final ObjectId bobId = new ObjectId();
+    private RosterCache roster;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        List<Document> users = Arrays.asList(
+                new Document("_id", aliceId).append("username", "alice").append("present", true),
+                new Document("_id", bobId).append("username", "bob").append("present", false));
+        when(usersCollection.find()).thenReturn(findIterable);
+        when(findIterable.into(any(Collection.class))).thenAnswer(inv -> {
+            Collection<Document> target = inv.getArgument(0);
+            target.addAll(users);
+            return target;
+        });
+        roster = new RosterCache(usersCollection);
+    }
+
+    @Test
+    void testReadsAreServedFromMemory() {
+        assertEquals("alice", roster.getById(aliceId).getString("username"));
+        assertEquals(bobId, roster.getByUsername("bob").getObjectId("_id"));
+        assertEquals(2, roster.all().size());
+        assertEquals(1, roster.present().size());
+
+        verify(usersCollection, times(1)).find();
+        verify(usersCollection, never()).find(any(Bson.class));
+    }
+
+    @Test
+    void testUpdateReplacesCachedDocumentAndBumpsVersion() {
+        long before = roster.version();
+        Document renamed = new Document("_id", bobId).append("username", "robert").append("present", true);
+        when(usersCollection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(renamed);
+
+        roster.updateById(bobId, new Document("$set", new Document("username", "robert")));
+
+        assertTrue(roster.version() > before);
+        assertEquals("robert", roster.getById(bobId).getString("username"));
+        assertSame(renamed, roster.getByUsername("robert"));
+        assertEquals(2, roster.present().size());
+        assertEquals(new ArrayList<>(Arrays.asList(aliceId, bobId)),
+                Arrays.asList(roster.all().get(0).getObjectId("_id"), roster.all().get(1).getObjectId("_id")));
+    }
+
+    @Test
+    void testOlderRevisionNeverReplacesNewerOne() {
+        Document newer = new Document("_id", bobId).append("username", "bob").append("present", true).append("rev", 2L);
+        Document older = new Document("_id", bobId).append("username", "bob").append("present", false).append("rev", 1L);
+
+        // Two updates of the same user whose replies arrive in reverse order
+        roster.put(newer);
+        roster.put(older);
+
+        assertSame(newer, roster.getById(bobId));
+        assertEquals(2, roster.present().size());
+    }
+
+    @Test
+    void testWritesAreReportedAndRemoteChangesRefreshed() {
+        List<ObjectId> written = new ArrayList<>();
+        roster.onWrite(written::add);
+        Document present = new Document("_id", bobId).append("username", "bob").append("present", true).append("rev", 1L);
+        when(usersCollection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(present);
+
+        roster.updateById(bobId, new Document("$set", new Document("present", true)));
+        assertEquals(Arrays.asList(bobId), written);
+
+        // Another node marked alice absent and then deleted bob
+        Document absent = new Document("_id", aliceId).append("username", "alice").append("present", false).append("rev", 1L);
+        when(usersCollection.find(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.first()).thenReturn(absent, (Document) null);
+        roster.refresh(aliceId);
+        roster.refresh(bobId);
+
+        assertSame(absent, roster.getById(aliceId));
+        assertEquals(0, roster.present().size());
+        assertNull(roster.getByUsername("bob"));
+        assertEquals(1, written.size(), "refreshes are not reported back");
+    }
+}
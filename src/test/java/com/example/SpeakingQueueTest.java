@@ -0,0 +1,123 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SpeakingQueueTest {
+
+    private MongoCollection<Document> collection;
+    private final List<String> broadcasts = new ArrayList<>();
+    private SpeakingQueue queue;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        collection = mock(MongoCollection.class);
+        queue = new SpeakingQueue(collection, new ResourceVersions(), broadcasts::add);
+    }
+
+    private static Document item(String type, int priority, long time) {
+        return new Document("type", type)
+                .append("userId", new ObjectId())
+                .append("username", type.toLowerCase())
+                .append("priority", priority)
+                .append("timestamp", new Date(time))
+                .append("status", "pending");
+    }
+
+    private JSONObject lastDelta() {
+        return new JSONObject(broadcasts.get(broadcasts.size() - 1));
+    }
+
+    @Test
+    void testOrdersByPriorityThenTimestamp() {
+        Document speaker = queue.insert(item("SPEAKER_REQUEST", 10, 1000));
+        queue.insert(item("PROPOSAL_DISCUSSION", 30, 500));
+        Document objection = queue.insert(item("OBJECTION", 1, 2000));
+        Document laterSpeaker = queue.insert(item("SPEAKER_REQUEST", 10, 1500));
+
+        JSONArray snapshot = queue.snapshot().queue;
+        assertEquals(objection.getObjectId("_id").toHexString(), snapshot.getJSONObject(0).getString("id"));
+        assertEquals(speaker.getObjectId("_id").toHexString(), snapshot.getJSONObject(1).getString("id"));
+        assertEquals(laterSpeaker.getObjectId("_id").toHexString(), snapshot.getJSONObject(2).getString("id"));
+        assertEquals("PROPOSAL_DISCUSSION", snapshot.getJSONObject(3).getString("type"));
+        assertEquals("OBJECTING", snapshot.getJSONObject(0).getString("requestType"));
+
+        // One insert delta per mutation, in sequence, and nothing read back from MongoDB
+        assertEquals(4, broadcasts.size());
+        assertEquals(4, queue.snapshot().sequence);
+        assertTrue(lastDelta().getString("version").endsWith("-4"));
+        assertEquals("insert", lastDelta().getJSONArray("ops").getJSONObject(0).getString("op"));
+        verify(collection, times(4)).insertOne(any(Document.class));
+        verify(collection, never()).find(any(Bson.class));
+    }
+
+    @Test
+    void testSetActiveAndCompleteBroadcastMovesAndRemoves() {
+        Document first = queue.insert(item("SPEAKER_REQUEST", 10, 1000));
+        Document second = queue.insert(item("SPEAKER_REQUEST", 10, 2000));
+        ObjectId firstId = first.getObjectId("_id");
+        ObjectId secondId = second.getObjectId("_id");
+
+        assertEquals("active", queue.setActive(firstId).getString("status"));
+        assertEquals("move", lastDelta().getJSONArray("ops").getJSONObject(0).getString("op"));
+        // The cached document is replaced, never changed in place
+        assertEquals("pending", first.getString("status"));
+
+        queue.setActive(secondId);
+        JSONArray ops = lastDelta().getJSONArray("ops");
+        assertEquals(2, ops.length());
+        assertEquals("pending", ops.getJSONObject(0).getJSONObject("item").getString("status"));
+        assertEquals("active", ops.getJSONObject(1).getJSONObject("item").getString("status"));
+
+        assertNull(queue.completeActive(firstId), "only the active item can be completed");
+        assertNotNull(queue.completeActive(secondId));
+        assertEquals("remove", lastDelta().getJSONArray("ops").getJSONObject(0).getString("op"));
+        assertEquals(secondId.toHexString(), lastDelta().getJSONArray("ops").getJSONObject(0).getString("id"));
+        assertEquals(1, queue.size());
+        assertNull(queue.get(secondId));
+
+        assertEquals(1, queue.completePending(first.getObjectId("userId"), "SPEAKER_REQUEST"));
+        assertEquals(0, queue.size());
+        assertEquals(6, queue.snapshot().sequence);
+    }
+
+    @Test
+    void testIndexesFollowStatusChanges() {
+        Document speaker = queue.insert(item("SPEAKER_REQUEST", 10, 1000));
+        ObjectId userId = speaker.getObjectId("userId");
+        Document objection = item("OBJECTION", 1, 2000).append("userId", userId);
+        queue.insert(objection);
+
+        // The earlier item in queue order wins across the requested types
+        assertSame(objection, queue.findPending(userId, "SPEAKER_REQUEST", "OBJECTION"));
+        assertSame(speaker, queue.findPending(userId, "SPEAKER_REQUEST"));
+
+        // An active item is no longer pending
+        queue.setActive(speaker.getObjectId("_id"));
+        assertNull(queue.findPending(userId, "SPEAKER_REQUEST"));
+
+        List<Document> discussions = new ArrayList<>();
+        discussions.add(item("PROPOSAL_DISCUSSION", 30, 500).append("userId", null));
+        queue.replaceProposalDiscussions(discussions);
+        discussions = new ArrayList<>();
+        discussions.add(item("PROPOSAL_DISCUSSION", 30, 600).append("userId", null));
+        queue.replaceProposalDiscussions(discussions);
+        assertEquals(3, queue.size());
+        assertSame(discussions.get(0), queue.findPending(null, "PROPOSAL_DISCUSSION"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.resource.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.DispatcherType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticAssetFilterTest {
+
+    private static final String APP_JS = "console.log('app');";
+
+    @TempDir
+    Path webapp;
+
+    private Server server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        Files.write(webapp.resolve("app.js"), APP_JS.getBytes(StandardCharsets.UTF_8));
+        Files.write(webapp.resolve("index.html"), ("<html><head>"
+                + "<link href=\"https://fonts.googleapis.com\" rel=\"preconnect\">"
+                + "</head><body><script src=\"app.js\"></script></body></html>").getBytes(StandardCharsets.UTF_8));
+
+        server = new Server(0);
+        ServletContextHandler context = new ServletContextHandler();
+        Resource base = Resource.newResource(webapp.toFile());
+        context.setBaseResource(base);
+        ServletHolder defaultServlet = new ServletHolder("default", DefaultServlet.class);
+        Main.configureStaticContent(defaultServlet, true, true);
+        context.addServlet(defaultServlet, "/");
+        context.addFilter(new FilterHolder(new StaticAssetFilter(base)), "/*", EnumSet.of(DispatcherType.REQUEST));
+        server.setHandler(context);
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    void testPageReferencesVersionedAssets() throws Exception {
+        HttpURLConnection page = get("/", null);
+        assertEquals(200, page.getResponseCode());
+        assertEquals(StaticAssetFilter.REVALIDATE, page.getHeaderField("Cache-Control"));
+        String html = body(page);
+        assertTrue(html.contains("href=\"https://fonts.googleapis.com\""), html);
+
+        Matcher script = Pattern.compile("src=\"(/app\\.[0-9a-f]{10}\\.js)\"").matcher(html);
+        assertTrue(script.find(), html);
+
+        HttpURLConnection asset = get(script.group(1), null);
+        assertEquals(200, asset.getResponseCode());
+        assertEquals(StaticAssetFilter.IMMUTABLE, asset.getHeaderField("Cache-Control"));
+        assertEquals(APP_JS, body(asset));
+
+        assertEquals("/img/logo.abc.png", StaticAssetFilter.fingerprint("/img/logo.png", "abc"));
+        assertEquals("/.well-known/LICENSE.abc", StaticAssetFilter.fingerprint("/.well-known/LICENSE", "abc"));
+    }
+
+    @Test
+    void testPageRevalidatesWithEtag() throws Exception {
+        HttpURLConnection first = get("/index.html", null);
+        String etag = first.getHeaderField("ETag");
+        assertNotNull(etag);
+
+        HttpURLConnection second = get("/index.html", etag);
+        assertEquals(304, second.getResponseCode());
+    }
+
+    @Test
+    void testGzippedPageHasItsOwnEtag() throws Exception {
+        HttpURLConnection plain = get("/index.html", null);
+        HttpURLConnection gzipped = get("/index.html", null, "gzip, deflate");
+        assertEquals("gzip", gzipped.getHeaderField("Content-Encoding"));
+        assertNull(plain.getHeaderField("Content-Encoding"));
+        assertEquals(plain.getHeaderField("ETag").replace("\"", "") + "--gzip", gzipped.getHeaderField("ETag").replace("\"", ""));
+
+        // Either tag revalidates whichever variant the client asks for
+        assertEquals(304, get("/index.html", gzipped.getHeaderField("ETag"), null).getResponseCode());
+        assertEquals(304, get("/index.html", plain.getHeaderField("ETag"), "gzip").getResponseCode());
+
+        assertNull(get("/index.html", null, "gzip;q=0, identity").getHeaderField("Content-Encoding"));
+        assertTrue(StaticAssetFilter.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(StaticAssetFilter.acceptsGzip("*"));
+        assertFalse(StaticAssetFilter.acceptsGzip("*, gzip;q=0"));
+        assertFalse(StaticAssetFilter.acceptsGzip("identity"));
+    }
+
+    private HttpURLConnection get(String path, String ifNoneMatch) throws IOException {
+        return get(path, ifNoneMatch, null);
+    }
+
+    private HttpURLConnection get(String path, String ifNoneMatch, String acceptEncoding) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        return connection;
+    }
+
+    private static String body(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
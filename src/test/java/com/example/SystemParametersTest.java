@@ -0,0 +1,67 @@
+package com.example;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SystemParametersTest {
+
+    @Mock
+    private MongoCollection<Document> collection;
+    @Mock
+    private FindIterable<Document> findIterable;
+
+    // What MongoDB currently holds for breakStatus and meetingNumber, in the order refresh() reads them
+    private Document breakStatus = new Document("parameter", "breakStatus").append("value", false);
+    private Document meetingNumber = new Document("parameter", "meetingNumber").append("value", 3);
+
+    @BeforeEach
+    void setUp() {
+        when(collection.find(any(Bson.class))).thenReturn(findIterable);
+        when(findIterable.first()).thenAnswer(inv -> breakStatus).thenAnswer(inv -> meetingNumber)
+                .thenAnswer(inv -> breakStatus).thenAnswer(inv -> meetingNumber)
+                .thenAnswer(inv -> breakStatus).thenAnswer(inv -> meetingNumber);
+    }
+
+    @Test
+    void testRefreshPicksUpDirectEdits() {
+        SystemParameters parameters = new SystemParameters(collection);
+        assertFalse(parameters.isBreakActive());
+        assertEquals(3, parameters.getMeetingNumber());
+        verify(collection, never()).insertOne(any(Document.class));
+
+        // Edited in MongoDB behind the server's back; memory only changes on refresh
+        breakStatus = new Document("parameter", "breakStatus").append("value", true);
+        meetingNumber = new Document("parameter", "meetingNumber").append("value", 4);
+        assertFalse(parameters.isBreakActive());
+
+        parameters.refresh();
+        assertTrue(parameters.isBreakActive());
+        assertEquals(4, parameters.getMeetingNumber());
+        parameters.shutdown();
+    }
+
+    @Test
+    void testSetterWritesThroughAndServesFromMemory() {
+        SystemParameters parameters = new SystemParameters(collection);
+
+        parameters.setBreakActive(true);
+
+        verify(collection).updateOne(any(Bson.class), any(Bson.class));
+        assertTrue(parameters.isBreakActive());
+        // Constructor reads only: two existence checks and one refresh
+        verify(collection, times(4)).find(any(Bson.class));
+        parameters.shutdown();
+    }
+}
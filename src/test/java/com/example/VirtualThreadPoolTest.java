@@ -0,0 +1,44 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadPoolTest {
+
+    @Test
+    void testPoolMatchesRuntimeSupport() throws Exception {
+        boolean supported;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+
+        VirtualThreadPool pool = VirtualThreadPool.createIfSupported();
+        if (!supported) {
+            assertNull(pool, "Virtual threads must not be offered on Java " + System.getProperty("java.version"));
+            return;
+        }
+
+        assertNotNull(pool);
+        pool.start();
+        CountDownLatch ran = new CountDownLatch(1);
+        boolean[] virtual = new boolean[1];
+        pool.execute(() -> {
+            try {
+                virtual[0] = (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+            } catch (ReflectiveOperationException e) {
+                virtual[0] = false;
+            }
+            ran.countDown();
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual[0]);
+        pool.stop();
+    }
+}
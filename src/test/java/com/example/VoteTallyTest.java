@@ -0,0 +1,100 @@
+package com.example;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VoteTallyTest {
+
+    private final ObjectId proposal = new ObjectId();
+    private final ObjectId alice = new ObjectId();
+    private final ObjectId bob = new ObjectId();
+    private final ObjectId carol = new ObjectId();
+
+    private Map<String, Integer> strengths(int a, int b, int c) {
+        Map<String, Integer> map = new HashMap<>();
+        map.put(alice.toHexString(), a);
+        map.put(bob.toHexString(), b);
+        map.put(carol.toHexString(), c);
+        return map;
+    }
+
+    @Test
+    void testChangedVotesMoveStrengthBetweenTotals() {
+        VoteTally tally = new VoteTally();
+        tally.setStrengths(strengths(5, 3, 2));
+        tally.load(proposal, Collections.emptyList());
+
+        tally.recordVote(proposal, alice, "alice", "For", new Date());
+        tally.recordVote(proposal, bob, "bob", "Against", new Date());
+        tally.recordVote(proposal, carol, "carol", "For", new Date());
+        tally.recordVote(proposal, carol, "carol", "Against", new Date());
+        tally.recordVote(proposal, carol, "carol", "Against", new Date());
+
+        VoteTally.Result result = tally.result(proposal);
+        assertEquals(5, result.totalFor);
+        assertEquals(5, result.totalAgainst);
+        assertEquals(1, result.supporters);
+        assertEquals(3, result.votes.size());
+    }
+
+    @Test
+    void testSetStrengthsRebasesOpenTallies() {
+        VoteTally tally = new VoteTally();
+        tally.load(proposal, Arrays.asList(
+                new Document("userId", alice).append("username", "alice").append("voteChoice", "For"),
+                new Document("userId", bob).append("username", "bob").append("voteChoice", "Abstain")));
+
+        assertEquals(0, tally.result(proposal).totalFor);
+
+        tally.setStrengths(strengths(4, 6, 0));
+        VoteTally.Result result = tally.result(proposal);
+        assertEquals(4, result.totalFor);
+        assertEquals(0, result.totalAgainst);
+        assertEquals(4, result.votes.get(0).electoralStrength);
+    }
+
+    @Test
+    void testLoadIfAbsentKeepsExistingTally() {
+        VoteTally tally = new VoteTally();
+        tally.setStrengths(strengths(1, 1, 1));
+        tally.load(proposal, Collections.emptyList());
+        tally.recordVote(proposal, alice, "alice", "For", new Date());
+
+        tally.loadIfAbsent(proposal, Arrays.asList(
+                new Document("userId", bob).append("username", "bob").append("voteChoice", "Against")));
+
+        assertEquals(1, tally.result(proposal).totalFor);
+        assertEquals(0, tally.result(proposal).totalAgainst);
+        tally.remove(proposal);
+        assertFalse(tally.isTracked(proposal));
+    }
+
+    @Test
+    void testLateVotesAndLegacyChoices() {
+        VoteTally tally = new VoteTally();
+        tally.setStrengths(strengths(1, 1, 1));
+        tally.load(proposal, Arrays.asList(
+                new Document("userId", alice).append("username", "alice").append("voteChoice", "Present"),
+                new Document("userId", bob).append("username", "bob").append("voteChoice", "For")));
+
+        // A legacy choice counts towards neither total but stays in the detail
+        VoteTally.Result result = tally.result(proposal);
+        assertEquals(1, result.totalFor);
+        assertEquals(0, result.totalAgainst);
+        assertEquals("Present", result.votes.get(0).voteChoice);
+
+        // Once the proposal is closed, a late vote does not recreate its tally
+        tally.remove(proposal);
+        assertFalse(tally.recordVote(proposal, carol, "carol", "For", new Date()));
+        assertFalse(tally.isTracked(proposal));
+    }
+}
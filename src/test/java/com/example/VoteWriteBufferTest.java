@@ -0,0 +1,127 @@
+package com.example;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoteWriteBufferTest {
+
+    // Long enough that the background flusher never runs during a test
+    private static final long NO_AUTO_FLUSH_MS = 3_600_000L;
+
+    @Mock
+    private MongoCollection<Document> votesCollection;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectId proposalId = new ObjectId();
+    private final ObjectId aliceId = new ObjectId();
+    private final ObjectId bobId = new ObjectId();
+
+    private static Document vote(ObjectId proposalId, ObjectId userId, String username, String choice) {
+        return new Document("proposalId", proposalId)
+                .append("userId", userId)
+                .append("username", username)
+                .append("voteChoice", choice)
+                .append("electoralStrength", 3)
+                .append("timestamp", new Date());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRepeatedVotesAreCoalescedIntoOneBulkWrite() throws Exception {
+        Path journalPath = tempDir.resolve("votes.log");
+        VoteWriteBuffer buffer = new VoteWriteBuffer(votesCollection, journalPath, NO_AUTO_FLUSH_MS);
+
+        buffer.submit(vote(proposalId, aliceId, "alice", "For"));
+        buffer.submit(vote(proposalId, aliceId, "alice", "Against"));
+        buffer.submit(vote(proposalId, bobId, "bob", "For"));
+
+        // Acknowledged votes are on disk and visible to reads before any flush
+        assertEquals(3, Files.readAllLines(journalPath).size());
+        Map<ObjectId, String> pending = buffer.pendingChoicesFor(aliceId);
+        assertEquals("Against", pending.get(proposalId));
+        verify(votesCollection, never()).bulkWrite(any(List.class), any(BulkWriteOptions.class));
+
+        buffer.flush();
+
+        ArgumentCaptor<List<WriteModel<Document>>> captor = ArgumentCaptor.forClass(List.class);
+        verify(votesCollection).bulkWrite(captor.capture(), any(BulkWriteOptions.class));
+        assertEquals(2, captor.getValue().size());
+        assertEquals(0, Files.size(journalPath));
+        assertFalse(Files.exists(tempDir.resolve("votes.log.1")), "the flushed segment is deleted");
+        assertTrue(buffer.pendingChoicesFor(aliceId).isEmpty());
+
+        buffer.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testJournalIsReplayedOnStartup() throws Exception {
+        Path journalPath = tempDir.resolve("votes.log");
+        VoteWriteBuffer crashed = new VoteWriteBuffer(votesCollection, journalPath, NO_AUTO_FLUSH_MS);
+        crashed.submit(vote(proposalId, aliceId, "alice", "For"));
+        crashed.submit(vote(proposalId, bobId, "bob", "Abstain"));
+        // A write torn by the crash, never acknowledged
+        Files.write(journalPath, "{\"proposalId\":\"".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        VoteWriteBuffer restarted = new VoteWriteBuffer(votesCollection, journalPath, NO_AUTO_FLUSH_MS);
+
+        ArgumentCaptor<List<WriteModel<Document>>> captor = ArgumentCaptor.forClass(List.class);
+        verify(votesCollection).bulkWrite(captor.capture(), any(BulkWriteOptions.class));
+        assertEquals(2, captor.getValue().size());
+        assertEquals(0, Files.size(journalPath));
+
+        restarted.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedFlushKeepsSegmentAndRetries() throws Exception {
+        Path journalPath = tempDir.resolve("votes.log");
+        VoteWriteBuffer buffer = new VoteWriteBuffer(votesCollection, journalPath, NO_AUTO_FLUSH_MS);
+        when(votesCollection.bulkWrite(any(List.class), any(BulkWriteOptions.class)))
+                .thenThrow(new com.mongodb.MongoTimeoutException("down"))
+                .thenReturn(null);
+
+        buffer.submit(vote(proposalId, aliceId, "alice", "For"));
+        assertFalse(buffer.flush(), "a failed flush is reported, not thrown");
+        // Sealed before the attempt, kept because it failed; votes arriving meanwhile go to a new journal
+        assertTrue(Files.exists(tempDir.resolve("votes.log.1")));
+        assertEquals(1, buffer.pendingVotesFor(List.of(proposalId)).size());
+        buffer.submit(vote(proposalId, bobId, "bob", "Against"));
+        assertEquals(1, Files.readAllLines(journalPath).size());
+
+        assertTrue(buffer.flush());
+        ArgumentCaptor<List<WriteModel<Document>>> captor = ArgumentCaptor.forClass(List.class);
+        verify(votesCollection, times(2)).bulkWrite(captor.capture(), any(BulkWriteOptions.class));
+        assertEquals(2, captor.getValue().size());
+        assertFalse(Files.exists(tempDir.resolve("votes.log.1")));
+        assertFalse(Files.exists(tempDir.resolve("votes.log.2")));
+        assertEquals(0, Files.size(journalPath));
+
+        buffer.shutdown();
+    }
+}